@@ -0,0 +1,68 @@
+package org.kmeans.bench;
+
+import org.kmeans.utils.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One assignment pass and one update step in isolation
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class AssignmentBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int n;
+
+    @Param({"10", "100", "1000"})
+    public int k;
+
+    private SiteDataset data;
+    private double[] centroids;
+    private int[] assignment;
+    private double[] sums;
+    private double[] weights;
+    private ClusterCenter center;
+
+    @Setup
+    public void setup() throws IOException {
+        data = SyntheticSites.generate(n, 42);
+        centroids = CentroidSeeding.seed(data, k, SeedingStrategy.KMEANS_PLUS_PLUS, new Random(42));
+        assignment = new int[n];
+        sums = new double[k * 2];
+        weights = new double[k];
+        // updateStep runs in its own fork, so it needs the accumulators of a real assignment pass
+        ClusterKernels.assignRange(data, 0, n, centroids, k, assignment, sums, weights);
+
+        // One center owning an average-sized cluster
+        center = new ClusterCenter(centroids[0], centroids[1]);
+        center.assignedSites.addAll(data.toSites().subList(0, n / k));
+    }
+
+    @Benchmark
+    public int[] assignStep() {
+        Arrays.fill(sums, 0);
+        Arrays.fill(weights, 0);
+        ClusterKernels.assignRange(data, 0, n, centroids, k, assignment, sums, weights);
+        return assignment;
+    }
+
+    @Benchmark
+    public void updateStep(Blackhole bh) {
+        double[] moved = centroids.clone();
+        bh.consume(ClusterKernels.updateCentroids(moved, sums, weights, k));
+        bh.consume(moved);
+    }
+
+    @Benchmark
+    public boolean clusterCenterUpdate() {
+        return center.updateCenter();
+    }
+}
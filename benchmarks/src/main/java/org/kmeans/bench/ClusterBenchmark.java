@@ -0,0 +1,69 @@
+package org.kmeans.bench;
+
+import org.kmeans.utils.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end runs with a fixed seed and iteration cap, so every invocation does the same work
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ClusterBenchmark {
+
+    private static final int MAX_ITERATIONS = 20;
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"100000", "1000000"})
+        public int n;
+
+        @Param({"10", "100", "1000"})
+        public int k;
+
+        @Param({"BRUTE_FORCE", "HAMERLY"})
+        public AssignmentMode assignment;
+
+        SiteDataset data;
+
+        @Setup
+        public void setup() throws IOException {
+            data = SyntheticSites.generate(n, 42);
+        }
+
+        ClusteringOptions options(int threads) {
+            ClusteringOptions options = new ClusteringOptions(k, MAX_ITERATIONS);
+            options.assignment = assignment;
+            options.seed = 42L;
+            options.threads = threads;
+            return options;
+        }
+    }
+
+    // Kept separate so the sequential engine is not re-run for every thread count
+    @State(Scope.Benchmark)
+    public static class Threads {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+    }
+
+    @Benchmark
+    public ClusteringResult sequential(Input input) {
+        return KMeans.cluster(input.data, input.options(1));
+    }
+
+    @Benchmark
+    public ClusteringResult parallel(Input input, Threads threads) {
+        return KMeansParallel.cluster(input.data, input.options(threads.threads));
+    }
+
+    // One thread per rank through ThreadCommunicator; the ranks always scan every center,
+    // so compare against parallel with BRUTE_FORCE
+    @Benchmark
+    public ClusteringResult distributed(Input input, Threads threads) {
+        return DistributedKMeansMPJ.clusterInProcess(input.data, input.options(0), threads.threads);
+    }
+}
@@ -0,0 +1,46 @@
+package org.kmeans.bench;
+
+import org.kmeans.utils.AccumulationSite;
+import org.kmeans.utils.SiteLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// SiteLoader.loadSites parsing a synthetic file in the disposal_sites.json schema
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class LoaderBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int n;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = SyntheticSites.writeJson(n, 42);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<AccumulationSite> loadAll() {
+        return SiteLoader.loadSites(file.toString(), n);
+    }
+
+    @Benchmark
+    public List<AccumulationSite> loadTenth() {
+        return SiteLoader.loadSites(file.toString(), n / 10);
+    }
+}
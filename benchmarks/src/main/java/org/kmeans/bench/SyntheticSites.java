@@ -0,0 +1,84 @@
+package org.kmeans.bench;
+
+import org.kmeans.utils.SiteDataset;
+import org.kmeans.utils.SiteStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+// Deterministic synthetic inputs: real disposal_sites.json entries resampled with a small
+// Gaussian jitter, so benchmarks see the same spatial structure at any n
+public class SyntheticSites {
+
+    private static final double JITTER_DEGREES = 0.05;
+    private static SiteDataset seedSites;
+
+    public static synchronized SiteDataset generate(int n, long seed) throws IOException {
+        SiteDataset base = seedSites();
+        Random rand = new Random(seed);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] capacity = new double[n];
+        for (int i = 0; i < n; i++) {
+            int j = rand.nextInt(base.size);
+            lat[i] = base.lat[j] + rand.nextGaussian() * JITTER_DEGREES;
+            lon[i] = base.lon[j] + rand.nextGaussian() * JITTER_DEGREES;
+            capacity[i] = base.capacity[j];
+        }
+        return new SiteDataset(lat, lon, capacity);
+    }
+
+    // Writes n synthetic sites in the disposal_sites.json schema
+    public static Path writeJson(int n, long seed) throws IOException {
+        SiteDataset data = generate(n, seed);
+        Path file = Files.createTempFile("kmeans-bench-sites-", ".json");
+        file.toFile().deleteOnExit();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("[");
+            for (int i = 0; i < n; i++) {
+                out.printf(Locale.ROOT, "  {\"id\": \"%d\", \"lat\": %.7f, \"lon\": %.7f, \"disposal_tons_per_year\": %.0f}%s%n",
+                        i, data.lat[i], data.lon[i], data.capacity[i], i + 1 < n ? "," : "");
+            }
+            out.println("]");
+        }
+        return file;
+    }
+
+    private static SiteDataset seedSites() throws IOException {
+        if (seedSites != null) return seedSites;
+
+        Path copy = Files.createTempFile("kmeans-bench-seed-", ".json");
+        copy.toFile().deleteOnExit();
+        try (InputStream in = SyntheticSites.class.getResourceAsStream("/disposal_sites.json")) {
+            if (in == null) throw new IOException("disposal_sites.json not found on the classpath");
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        int n = 0;
+        double[] lat = new double[4096], lon = new double[4096], cap = new double[4096];
+        double[] bLat = new double[4096], bLon = new double[4096], bCap = new double[4096];
+        try (SiteStream stream = SiteStream.openJson(copy.toString())) {
+            int read;
+            while ((read = stream.next(bLat, bLon, bCap, bLat.length)) > 0) {
+                if (n + read > lat.length) {
+                    lat = Arrays.copyOf(lat, lat.length * 2);
+                    lon = Arrays.copyOf(lon, lon.length * 2);
+                    cap = Arrays.copyOf(cap, cap.length * 2);
+                }
+                System.arraycopy(bLat, 0, lat, n, read);
+                System.arraycopy(bLon, 0, lon, n, read);
+                System.arraycopy(bCap, 0, cap, n, read);
+                n += read;
+            }
+        }
+        seedSites = new SiteDataset(Arrays.copyOf(lat, n), Arrays.copyOf(lon, n), Arrays.copyOf(cap, n));
+        return seedSites;
+    }
+}
@@ -3,19 +3,24 @@ package org.kmeans;
 import org.kmeans.gui.MapWindow;
 import org.kmeans.utils.*;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import javax.swing.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.BiFunction;
 
 public class App {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            Cli.main(args); // headless: no dialogs, no GUI
+            return;
+        }
         try {
             // Step 1: Choose execution mode
-            String[] modes = { "Sequential", "Parallel", "Distributed " };
+            String[] modes = { "Sequential", "Parallel", "KD-tree", "Mini-batch", "Distributed " };
             String selectedMode = (String) JOptionPane.showInputDialog(
                     null,
                     "Choose execution mode:",
@@ -52,6 +57,64 @@ public class App {
                 options[0] // default selection
             );
             boolean enableGUI = "Yes".equalsIgnoreCase(guiInput);
+
+            ClusteringOptions clusteringOptions = new ClusteringOptions(numClusters, 100);
+            String seedInput = JOptionPane.showInputDialog(
+                    "Random seed (blank for a new random start; seeded runs are cached):", "42");
+            if (seedInput != null && !seedInput.isBlank()) {
+                clusteringOptions.seed = Long.parseLong(seedInput.trim());
+            }
+            clusteringOptions.cache = true; // a repeat of an earlier seeded run is read back from results/cache
+            if (selectedMode.equals("Sequential") || selectedMode.equals("Parallel")) {
+                String pruneInput = (String) JOptionPane.showInputDialog(
+                    null,
+                    "Skip distance scans with triangle-inequality bounds (Hamerly)?",
+                    "Assignment",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[0]
+                );
+                if ("Yes".equalsIgnoreCase(pruneInput)) {
+                    clusteringOptions.assignment = AssignmentMode.HAMERLY;
+                }
+                String geodesicInput = (String) JOptionPane.showInputDialog(
+                    null,
+                    "Measure great-circle distances instead of flat lat/lon (ignores Hamerly)?",
+                    "Distance",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[1]
+                );
+                if ("Yes".equalsIgnoreCase(geodesicInput)) {
+                    clusteringOptions.distance = DistanceMode.GEODESIC;
+                }
+            }
+            boolean capacityWeighted = false;
+            boolean useCoreset = false;
+            if (selectedMode.equals("Sequential") || selectedMode.equals("Parallel") || selectedMode.equals("KD-tree")) {
+                String weightInput = (String) JOptionPane.showInputDialog(
+                    null,
+                    "Weight sites by disposal capacity?",
+                    "Weighting",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[1]
+                );
+                capacityWeighted = "Yes".equalsIgnoreCase(weightInput);
+                String coresetInput = (String) JOptionPane.showInputDialog(
+                    null,
+                    "Merge near-duplicate sites into a weighted coreset before clustering?",
+                    "Coreset",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[1]
+                );
+                useCoreset = "Yes".equalsIgnoreCase(coresetInput);
+            }
             if (Integer.parseInt(siteInput) > maxSites) {
                 System.out.println("⚠️ Requested sites exceed RAM-safe estimate. Limited to " + maxSites);
             }
@@ -60,30 +123,98 @@ public class App {
 
             // Step 4: Load sites
             String pathToJson = "src/main/resources/disposal_sites.json";
-            List<AccumulationSite> sites = SiteLoader.loadSites(pathToJson, numSites);
-            String tempInputPath = "results/temp_sites_input.json";
-            saveSites(sites, tempInputPath); // You’ll need this helper
+            // Parsed once into the mapped binary format, reused until the JSON changes
+            String pathToSites = Files.exists(Path.of(pathToJson))
+                    ? SiteBinaryFormat.convertIfStale(pathToJson, "results/disposal_sites.bin")
+                    : pathToJson;
+            boolean streaming = selectedMode.equals("Mini-batch"); // streams the file instead of loading it
+            SiteDataset dataset = streaming ? SiteDataset.fromSites(List.of())
+                    : SiteLoader.loadDataset(pathToSites, numSites); // decoded straight into columns
+            String tempInputPath = "results/temp_sites_input.bin";
+            if (!streaming) {
+                SiteBinaryFormat.write(dataset, tempInputPath); // each MPJ rank maps its own share of this
+            }
+
+            SiteDataset input = capacityWeighted ? dataset.weightedByCapacity() : dataset;
+            boolean coreset = useCoreset;
+
+            // Start from the previous run's clusters when there is one with the same k
+            boolean inMemory = selectedMode.equals("Sequential") || selectedMode.equals("Parallel")
+                    || selectedMode.equals("KD-tree");
+            WarmStart.Prior prior = null;
+            if (inMemory) {
+                try {
+                    prior = WarmStart.load();
+                } catch (IOException e) {
+                    // A truncated or stale file from an earlier run only costs the warm start
+                    System.out.println("⚠️ Ignoring unreadable warm-start files: " + e.getMessage());
+                }
+            }
+            if (prior != null && prior.k == numClusters) {
+                String warmInput = (String) JOptionPane.showInputDialog(
+                    null,
+                    "Warm-start from the previous run's clusters?",
+                    "Warm start",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[0]
+                );
+                if (!"Yes".equalsIgnoreCase(warmInput)) prior = null;
+            } else {
+                prior = null;
+            }
+            // Sequential and Parallel refresh incrementally; the other engines just start from the old centers
+            WarmStart.Prior warmStart = prior != null && !useCoreset && !selectedMode.equals("KD-tree") ? prior : null;
+            if (prior != null && warmStart == null) {
+                clusteringOptions.initialCentroids = prior.centroids;
+            }
 
             // Step 5: Run clustering in a background thread
             new Thread(() -> {
                 ClusteringResult result;
 
-                switch (selectedMode) {
+                // Sequential and Parallel runs show their centers moving while they iterate
+                boolean live = enableGUI && HardwareInfo.getMaxMemoryMB() >= 512 && warmStart == null
+                        && (selectedMode.equals("Sequential") || selectedMode.equals("Parallel"));
+                MapWindow liveWindow = live ? openLiveWindow() : null;
+                if (liveWindow != null) {
+                    clusteringOptions.progress = liveWindow::showProgress;
+                    clusteringOptions.progressEveryMillis = 100;
+                }
+
+                switch (warmStart != null ? "Warm start" : selectedMode) {
+                    case "Warm start":
+                        result = WarmStart.refresh(warmStart, input, clusteringOptions);
+                        break;
                     case "Parallel":
-                        result = KMeansParallel.cluster(sites, numClusters, 100);
+                        result = cluster("KMeansParallel", KMeansParallel::cluster, input, clusteringOptions, coreset);
+                        break;
+                    case "KD-tree":
+                        result = cluster("KMeansKdTree", KMeansKdTree::cluster, input, clusteringOptions, coreset);
+                        break;
+                    case "Mini-batch":
+                        // Trains on the first numSites sites of the file, then assigns every one of
+                        // them so the map and JSON show the whole clustering, not the held-out sample
+                        ClusteringResult trained = MiniBatchKMeans.cluster(pathToSites, clusteringOptions,
+                                MiniBatchKMeans.DEFAULT_BATCH_SIZE, numSites);
+                        result = MiniBatchKMeans.assignAll(pathToSites, trained, numSites);
                         break;
                     case "Distributed ":
+                        int availableCores = Runtime.getRuntime().availableProcessors();
+                        int np = Math.max(2, availableCores); // the master clusters a shard too
+                        String mpjHome = System.getenv("MPJ_HOME");
+                        if (mpjHome == null) {
+                            // Same algorithm and messages, with threads standing in for the processes
+                            System.out.println("MPJ_HOME not set. Running distributed mode in-process with "
+                                    + np + " thread ranks.");
+                            result = DistributedKMeansMPJ.clusterInProcess(dataset, clusteringOptions, np);
+                            break;
+                        }
                         try {
-                            int availableCores = Runtime.getRuntime().availableProcessors();
-                            int np = Math.max(2, availableCores); // 1 master + N workers
                             System.out
                                     .println("Detected " + availableCores + " CPU cores. Running distributed mode with "
-                                            + np + " processes (1 master + " + (np - 1) + " workers).");
-
-                            String mpjHome = System.getenv("MPJ_HOME");
-                            if (mpjHome == null) {
-                                throw new RuntimeException("MPJ_HOME not set. Cannot run distributed mode.");
-                            }
+                                            + np + " processes (master + " + (np - 1) + " workers, one shard each).");
 
                             boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
                             String pathSep = isWindows ? ";" : ":";
@@ -124,18 +255,24 @@ public class App {
                             proc.waitFor();
 
                             // ✅ Now load the result written by DistributedKMeansMPJ
-                            ClusteringResult distResult = ResultSaver.loadResult("results/distributed_result.json");
-                            if (distResult == null) {
+                            ClusteringResult summary = ResultSaver.loadResult("results/distributed_result.json");
+                            if (summary == null) {
                                 throw new RuntimeException("Distributed mode did not produce a valid result file.");
                             }
-                            // Reassign sites to nearest cluster for GUI coloring
-                            for (AccumulationSite site : sites) {
-                                int nearest = findNearestCluster(site, distResult.centers);
-                                distResult.centers.get(nearest).assignedSites.add(site);
+                            // The workers' final assignments come back in input order, so the
+                            // clusters are rebuilt for GUI coloring without any distance work
+                            AssignmentSidecar sidecar = AssignmentSidecar.read(DistributedKMeansMPJ.ASSIGNMENTS_PATH);
+                            if (sidecar.assignment.length != dataset.size) {
+                                throw new RuntimeException("Distributed assignments cover " + sidecar.assignment.length
+                                        + " sites, expected " + dataset.size + ".");
                             }
+                            ClusteringResult distResult = ClusterKernels.buildResult(dataset, sidecar.centroids,
+                                    sidecar.k, sidecar.assignment, summary.cycles, summary.finalShift,
+                                    summary.durationMillis);
 
                             // Same post-processing as other modes
                             System.out.println("Cycles: " + distResult.cycles);
+                            System.out.println("Final center shift: " + distResult.finalShift);
                             System.out.println("Run time: " + distResult.durationMillis + " ms");
 
                             if (enableGUI) {
@@ -155,12 +292,29 @@ public class App {
                         return;
                     case "Sequential":
                     default:
-                        result = KMeans.cluster(sites, numClusters, 100);
+                        result = cluster("KMeans", KMeans::cluster, input, clusteringOptions, coreset);
                 }
 
                 List<ClusterCenter> clusters = result.centers;
 
+                if (inMemory) {
+                    try {
+                        WarmStart.save(dataset, result); // seeds the next run
+                    } catch (Exception e) {
+                        System.out.println("⚠️ Could not save warm-start state: " + e.getMessage());
+                    }
+                }
+
+                if (result.metrics != null) {
+                    try {
+                        result.metrics.writeCsv("results/run_metrics.csv"); // per-iteration timings and counters
+                    } catch (Exception e) {
+                        System.out.println("⚠️ Could not write run metrics: " + e.getMessage());
+                    }
+                }
+
                 System.out.println("Cycles: " + result.cycles);
+                System.out.println("Final center shift: " + result.finalShift);
                 System.out.println("Run time: " + result.durationMillis + " ms");
 
                 // Step 6: Show GUI if enabled
@@ -169,7 +323,13 @@ public class App {
                     if (maxMemory < 512 && enableGUI) {
                         System.out.println("Disabling GUI due to low memory.");
                     } else {
-                        SwingUtilities.invokeLater(() -> new MapWindow(clusters));
+                        SwingUtilities.invokeLater(() -> {
+                            if (liveWindow != null) {
+                                liveWindow.showResult(clusters);
+                            } else {
+                                new MapWindow(clusters);
+                            }
+                        });
                     }
                 }
             }).start();
@@ -180,27 +340,25 @@ public class App {
         }
     }
 
-    private static int findNearestCluster(AccumulationSite site, List<ClusterCenter> centers) {
-        int best = 0;
-        double bestDist = Double.MAX_VALUE;
-        for (int i = 0; i < centers.size(); i++) {
-            double d = Math.pow(site.latitude - centers.get(i).latitude, 2)
-                    + Math.pow(site.longitude - centers.get(i).longitude, 2);
-            if (d < bestDist) {
-                bestDist = d;
-                best = i;
-            }
-        }
-        return best;
-    }
-
-    public static void saveSites(List<AccumulationSite> sites, String path) {
+    // Opened on the EDT; the worker waits for it so the first snapshot has a window to go to
+    private static MapWindow openLiveWindow() {
+        MapWindow[] window = new MapWindow[1];
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(path), sites);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save sites to file: " + path, e);
+            SwingUtilities.invokeAndWait(() -> window[0] = new MapWindow());
+        } catch (Exception e) {
+            System.out.println("⚠️ Could not open the live map: " + e.getMessage());
         }
+        return window[0];
     }
 
+    // Runs engine on the sites, or on their coreset followed by one pass over the sites.
+    // Plain runs are cached by the engine; a coreset run is cached as a whole, so a hit skips
+    // the coreset build and the final pass too.
+    private static ClusteringResult cluster(String engineName,
+                                            BiFunction<SiteDataset, ClusteringOptions, ClusteringResult> engine,
+                                            SiteDataset data, ClusteringOptions options, boolean useCoreset) {
+        if (!useCoreset) return engine.apply(data, options);
+        return ResultCache.shared().computeIfAbsent(engineName + "+coreset@" + Coreset.DEFAULT_CELL_DEGREES,
+                data, options, (d, o) -> Coreset.cluster(d, o, Coreset.DEFAULT_CELL_DEGREES, engine));
+    }
 }
@@ -0,0 +1,234 @@
+package org.kmeans;
+
+import org.kmeans.utils.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+// Headless entry point for servers and scripts: clusters a site file for one k or a range of
+// k (see KSweep), prints an elbow/silhouette table and saves the chosen result. App.main
+// hands over here when it is given any arguments, e.g.
+//   mvn exec:java -Dexec.args="--input sites.bin --engine parallel --k 2-20"
+// With --added/--removed it instead refreshes the last saved run (see WarmStart) by a delta.
+public class Cli {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: Cli --input <sites.json|sites.bin> --k <k | from-to[:step] | k1,k2,...> [options]",
+            "       Cli [--added <sites>] [--removed <sites>] [options]   refresh the last saved run",
+            "  --engine sequential|parallel|kdtree   (default parallel)",
+            "  --sites <n>            sample n sites (topped up with random sites if the file has fewer)",
+            "  --max-iterations <n>   (default 100)",
+            "  --tolerance <degrees>  (default 0)",
+            "  --seed <long>          repeatable --sites sample, seeding and silhouette sample;",
+            "                         seeded runs are cached",
+            "  --hamerly              triangle-inequality pruning (sequential, parallel)",
+            "  --geodesic             great-circle distances (sequential, parallel)",
+            "  --weighted             weight sites by capacity",
+            "  --threads <n>          size of the shared pool (default one per core)",
+            "  --concurrent <n>       k values clustered at once (default 4); the sorted k values are",
+            "                         split into that many blocks, and only k values after the first",
+            "                         of a block warm-start from the previous k",
+            "  --pick silhouette|elbow  which k to save (default silhouette)",
+            "  --out <dir>            (default results)",
+            "  --added <sites>        sites new since the last saved run (refresh mode)",
+            "  --removed <sites>      sites gone since the last saved run, matched by coordinates");
+
+    public static void main(String[] args) {
+        try {
+            run(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void run(String[] args) throws Exception {
+        String input = null;
+        String kSpec = null;
+        String engineName = "parallel";
+        String pick = "silhouette";
+        String out = "results";
+        int sites = 0;
+        int concurrent = 4;
+        boolean weighted = false;
+        String added = null;
+        String removed = null;
+        ClusteringOptions options = new ClusteringOptions(0, 100);
+        options.cache = true; // seeded runs only, see ResultCache
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input" -> input = value(args, ++i);
+                case "--k" -> kSpec = value(args, ++i);
+                case "--engine" -> engineName = value(args, ++i).toLowerCase();
+                case "--sites" -> sites = Integer.parseInt(value(args, ++i));
+                case "--max-iterations" -> options.maxIterations = Integer.parseInt(value(args, ++i));
+                case "--tolerance" -> options.tolerance = Double.parseDouble(value(args, ++i));
+                case "--seed" -> options.seed = Long.parseLong(value(args, ++i));
+                case "--hamerly" -> options.assignment = AssignmentMode.HAMERLY;
+                case "--geodesic" -> options.distance = DistanceMode.GEODESIC;
+                case "--weighted" -> weighted = true;
+                case "--threads" -> options.threads = Integer.parseInt(value(args, ++i));
+                case "--concurrent" -> concurrent = Integer.parseInt(value(args, ++i));
+                case "--pick" -> pick = value(args, ++i).toLowerCase();
+                case "--out" -> out = value(args, ++i);
+                case "--added" -> added = value(args, ++i);
+                case "--removed" -> removed = value(args, ++i);
+                case "--help", "-h" -> {
+                    System.out.println(USAGE);
+                    return;
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (added != null || removed != null) {
+            refresh(added, removed, options, out);
+            return;
+        }
+        if (input == null || kSpec == null) throw new IllegalArgumentException("--input and --k are required");
+        if (!new File(input).exists()) throw new IllegalArgumentException("Input file not found: " + input);
+        if (!pick.equals("silhouette") && !pick.equals("elbow")) {
+            throw new IllegalArgumentException("--pick must be silhouette or elbow");
+        }
+        BiFunction<SiteDataset, ClusteringOptions, ClusteringResult> engine = switch (engineName) {
+            case "sequential" -> KMeans::cluster;
+            case "parallel" -> KMeansParallel::cluster;
+            case "kdtree" -> KMeansKdTree::cluster;
+            default -> throw new IllegalArgumentException("Unknown engine " + engineName);
+        };
+        if (engineName.equals("kdtree") && options.distance == DistanceMode.GEODESIC) {
+            throw new IllegalArgumentException("The KD-tree engine is planar only");
+        }
+        int[] ks = parseKs(kSpec);
+
+        // One load, shared by every k
+        SiteDataset data = load(input, sites, options.seed, out);
+        if (weighted) data = data.weightedByCapacity();
+        for (int k : ks) {
+            if (k > data.size) throw new IllegalArgumentException("k = " + k + " exceeds the " + data.size + " sites");
+        }
+        System.out.println("Clustering " + data.size + " sites for k in " + kSpec + " with the " + engineName
+                + " engine, " + Math.min(concurrent, ks.length) + " k at a time.");
+
+        long startTime = System.nanoTime();
+        List<KSweep.Row> rows = KSweep.run(data, ks, options, concurrent, engine);
+        long sweepMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        int elbow = KSweep.elbow(rows);
+        int bestSilhouette = KSweep.bestSilhouette(rows);
+        int chosen = pick.equals("elbow") ? elbow : bestSilhouette;
+
+        System.out.println();
+        System.out.println(String.format("%6s %8s %10s %16s %10s %11s", "k", "cycles", "ms", "inertia", "drop %",
+                "silhouette"));
+        StringBuilder csv = new StringBuilder("k,cycles,duration_ms,inertia,silhouette\n");
+        KSweep.Row chosenRow = null;
+        for (int i = 0; i < rows.size(); i++) {
+            KSweep.Row row = rows.get(i);
+            // Inertia reaches 0 once k covers every distinct site; an unchanged 0 is no drop
+            double previous = i == 0 ? 0 : rows.get(i - 1).inertia;
+            String drop = i == 0 ? "" : previous == row.inertia ? "0.0" : String.format("%.1f",
+                    100 * (previous - row.inertia) / Math.max(previous, Double.MIN_NORMAL));
+            String marks = (row.k == elbow ? "  ← elbow" : "") + (row.k == bestSilhouette ? "  ← best silhouette" : "");
+            System.out.println(String.format("%6d %8d %10d %16.4f %10s %11.4f%s", row.k, row.result.cycles,
+                    row.result.durationMillis, row.inertia, drop, row.silhouette, marks));
+            csv.append(row.k).append(',').append(row.result.cycles).append(',').append(row.result.durationMillis)
+                    .append(',').append(row.inertia).append(',').append(row.silhouette).append('\n');
+            if (row.k == chosen) chosenRow = row;
+        }
+        System.out.println("Sweep took " + sweepMillis + " ms. Chosen k = " + chosen + " (" + pick + ").");
+
+        // Table, then the chosen centers and per-site clusters like a distributed run's output
+        Files.createDirectories(Path.of(out));
+        String tablePath = out + "/k_sweep.csv";
+        String resultPath = out + "/k_sweep_result.json";
+        String assignmentsPath = out + "/k_sweep_assignments.bin";
+        Files.writeString(Path.of(tablePath), csv.toString());
+        List<ClusterCenter> centers = new ArrayList<>(chosen);
+        for (ClusterCenter center : chosenRow.result.centers) {
+            centers.add(new ClusterCenter(center.latitude, center.longitude));
+        }
+        ResultSaver.saveResult(new ClusteringResult(centers, chosenRow.result.cycles, chosenRow.result.finalShift,
+                chosenRow.result.durationMillis), resultPath);
+        new AssignmentSidecar(chosen, WarmStart.centroidsOf(chosenRow.result), chosenRow.result.assignment)
+                .write(assignmentsPath);
+        if (chosenRow.result.metrics != null) chosenRow.result.metrics.writeCsv(out + "/k_sweep_metrics.csv");
+        System.out.println("✅ Saved " + tablePath + ", " + resultPath + " and " + assignmentsPath);
+    }
+
+    // Today's sites are the saved run's minus `removed` plus `added`; the saved centers and
+    // clusters are the starting point, and the result is saved as the next run's prior
+    private static void refresh(String added, String removed, ClusteringOptions options, String out)
+            throws Exception {
+        WarmStart.Prior prior = WarmStart.load();
+        if (prior == null) {
+            throw new IllegalArgumentException("No saved run to refresh under " + WarmStart.CENTROIDS_PATH);
+        }
+        for (String path : new String[]{added, removed}) {
+            if (path != null && !new File(path).exists()) {
+                throw new IllegalArgumentException("Input file not found: " + path);
+            }
+        }
+        SiteDataset none = new SiteDataset(new double[0], new double[0], new double[0]);
+        SiteDataset today = WarmStart.applyDelta(prior, added != null ? load(added, 0, null, out) : none,
+                removed != null ? load(removed, 0, null, out) : none);
+        options.k = prior.k;
+        ClusteringResult result = WarmStart.refresh(prior, today, options);
+        WarmStart.save(today, result);
+        System.out.println("✅ Refreshed " + today.size + " sites (k = " + prior.k + ") in " + result.cycles
+                + " iterations, " + result.durationMillis + " ms; saved to " + WarmStart.CENTROIDS_PATH);
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+
+    // "12", "2-20", "2-20:2" or a comma-separated mix of those
+    static int[] parseKs(String spec) {
+        Set<Integer> ks = new LinkedHashSet<>();
+        try {
+            for (String part : spec.split(",")) {
+                String range = part.trim();
+                int step = 1;
+                int colon = range.indexOf(':');
+                if (colon >= 0) {
+                    step = Integer.parseInt(range.substring(colon + 1));
+                    range = range.substring(0, colon);
+                }
+                int dash = range.indexOf('-');
+                int from = Integer.parseInt(dash >= 0 ? range.substring(0, dash) : range);
+                int to = dash >= 0 ? Integer.parseInt(range.substring(dash + 1)) : from;
+                if (from < 1 || to < from || step < 1) throw new IllegalArgumentException("Bad k range " + part);
+                for (int k = from; k <= to; k += step) ks.add(k);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad k values " + spec);
+        }
+        return ks.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // A sample of `sites` sites (the same one for the same seed), or the whole file (JSON is
+    // converted to binary once, as in App)
+    private static SiteDataset load(String input, int sites, Long seed, String out) throws Exception {
+        if (sites > 0) return SiteLoader.loadDataset(input, sites, seed != null ? new Random(seed) : new Random());
+        String binary = input;
+        if (!SiteBinaryFormat.isBinary(input)) {
+            String name = Path.of(input).getFileName().toString().replaceFirst("\\.json$", "");
+            Files.createDirectories(Path.of(out));
+            binary = SiteBinaryFormat.convertIfStale(input, out + "/" + name + ".bin");
+        }
+        return new MappedSiteStream(binary).toDataset();
+    }
+}
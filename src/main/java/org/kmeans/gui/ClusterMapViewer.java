@@ -0,0 +1,34 @@
+package org.kmeans.gui;
+
+import org.openstreetmap.gui.jmapviewer.JMapViewer;
+import org.openstreetmap.gui.jmapviewer.interfaces.MapMarker;
+
+import java.awt.*;
+
+// JMapViewer with the SiteLayer drawn between the tiles and the markers (the cluster centers),
+// so the centers and their labels stay on top of the sites
+class ClusterMapViewer extends JMapViewer {
+
+    private SiteLayer siteLayer;
+
+    ClusterMapViewer() {
+        setMapMarkerVisible(false); // painted below, after the site layer
+    }
+
+    void setSiteLayer(SiteLayer siteLayer) {
+        if (this.siteLayer != null && this.siteLayer != siteLayer) this.siteLayer.close();
+        this.siteLayer = siteLayer;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (siteLayer != null) siteLayer.paint((Graphics2D) g, this);
+        synchronized (this) {
+            for (MapMarker marker : getMapMarkerList()) {
+                if (marker.isVisible()) paintMarker(g, marker);
+            }
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package org.kmeans.gui;
 
-import org.kmeans.utils.AccumulationSite;
 import org.kmeans.utils.ClusterCenter;
 import org.kmeans.utils.LabeledMapMarker;
+import org.kmeans.utils.ProgressSnapshot;
 import org.openstreetmap.gui.jmapviewer.JMapViewer;
-import org.openstreetmap.gui.jmapviewer.MapMarkerCircle;
-import org.openstreetmap.gui.jmapviewer.MapMarkerDot;
 import org.openstreetmap.gui.jmapviewer.Coordinate;
 
 import javax.swing.*;
@@ -13,16 +11,32 @@ import java.awt.*;
 import java.util.List;
 
 public class MapWindow extends JFrame {
-    private JMapViewer map;
+    private static final String TITLE = "KMeans Waste Clustering";
+    private static final int ANIMATION_MILLIS = 300; // how long a center takes to glide to its new position
+    private ClusterMapViewer map;
+    private SiteLayer siteLayer;
     private static final Color[] COLORS = {
             Color.RED, Color.BLUE, Color.GREEN, Color.MAGENTA, Color.ORANGE,
             Color.CYAN, Color.PINK, Color.YELLOW, Color.GRAY, Color.LIGHT_GRAY
     };
 
+    // Live centers while the engine runs (EDT only); each one glides from "from" to "to"
+    private LabeledMapMarker[] liveMarkers;
+    private double[] fromLat, fromLon, toLat, toLon;
+    private long animationStart;
+    private final Timer animation = new Timer(33, e -> animate());
+    private boolean resultShown;
+
     public MapWindow(List<ClusterCenter> clusters) {
-        super("KMeans Waste Clustering");
+        this();
+        showResult(clusters);
+    }
+
+    // Empty window that follows a run through showProgress, until showResult gets the clusters
+    public MapWindow() {
+        super(TITLE);
     
-        map = new JMapViewer();
+        map = new ClusterMapViewer();
     
         // Enable interactivity
         map.setZoomControlsVisible(true);
@@ -34,7 +48,7 @@ public class MapWindow extends JFrame {
     
         // Add reset button
         JButton resetButton = new JButton("Reset View");
-        resetButton.addActionListener(e -> fitViewport(clusters));
+        resetButton.addActionListener(e -> fitViewport());
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         controlPanel.add(resetButton);
         add(controlPanel, BorderLayout.NORTH);
@@ -43,12 +57,76 @@ public class MapWindow extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
     
-        drawClusters(clusters);
-        fitViewport(clusters);
-    
         setVisible(true);
     }
-    
+
+    // A ProgressListener: safe to call from any thread, the snapshot is applied on the EDT
+    public void showProgress(ProgressSnapshot snapshot) {
+        SwingUtilities.invokeLater(() -> applyProgress(snapshot));
+    }
+
+    // Final clusters: replaces the live centers with the full picture, sites included
+    public void showResult(List<ClusterCenter> clusters) {
+        resultShown = true;
+        animation.stop();
+        liveMarkers = null;
+        map.removeAllMapMarkers();
+        setTitle(TITLE);
+        drawClusters(clusters);
+        fitViewport(); // needs the laid-out map size
+    }
+
+    private void applyProgress(ProgressSnapshot snapshot) {
+        if (resultShown) return; // a late snapshot of a run that is already drawn
+        int k = snapshot.k();
+        boolean first = liveMarkers == null || liveMarkers.length != k;
+        if (first) {
+            map.removeAllMapMarkers();
+            liveMarkers = new LabeledMapMarker[k];
+            fromLat = new double[k];
+            fromLon = new double[k];
+            toLat = new double[k];
+            toLon = new double[k];
+        }
+        for (int c = 0; c < k; c++) {
+            String label = "Cluster " + (c + 1) + " (" + Math.round(snapshot.weight(c)) + ")";
+            if (first) {
+                Color color = COLORS[c % COLORS.length];
+                liveMarkers[c] = new LabeledMapMarker(new Coordinate(snapshot.latitude(c), snapshot.longitude(c)),
+                        0.06, label, color.darker());
+                map.addMapMarker(liveMarkers[c]);
+                fromLat[c] = toLat[c] = snapshot.latitude(c);
+                fromLon[c] = toLon[c] = snapshot.longitude(c);
+            } else {
+                // Glide on from wherever the marker is now, so a new target mid-animation does not jump
+                fromLat[c] = liveMarkers[c].getLat();
+                fromLon[c] = liveMarkers[c].getLon();
+                toLat[c] = snapshot.latitude(c);
+                toLon[c] = snapshot.longitude(c);
+                liveMarkers[c].setLabel(label);
+            }
+        }
+        setTitle(TITLE + " - iteration " + snapshot.iteration + ", shift "
+                + String.format("%.6f", snapshot.shift) + (snapshot.finished ? " (done)" : ""));
+        if (first) {
+            map.setDisplayToFitMapMarkers();
+        } else {
+            animationStart = System.currentTimeMillis();
+            animation.start();
+        }
+        map.repaint();
+    }
+
+    private void animate() {
+        double t = Math.min(1, (System.currentTimeMillis() - animationStart) / (double) ANIMATION_MILLIS);
+        double eased = t * (2 - t); // ease out
+        for (int c = 0; c < liveMarkers.length; c++) {
+            liveMarkers[c].setLat(fromLat[c] + (toLat[c] - fromLat[c]) * eased);
+            liveMarkers[c].setLon(fromLon[c] + (toLon[c] - fromLon[c]) * eased);
+        }
+        if (t >= 1) animation.stop();
+        map.repaint();
+    }
 
     private void drawClusters(List<ClusterCenter> clusters) {
         for (int i = 0; i < clusters.size(); i++) {
@@ -60,18 +138,27 @@ public class MapWindow extends JFrame {
             LabeledMapMarker labeledCenter = new LabeledMapMarker(centerCoord, 0.06, "Cluster " + (i+1), color.darker());
             map.addMapMarker(labeledCenter);
 
-            // Draw accumulation sites assigned to this facility
-            for (AccumulationSite site : center.assignedSites) {
-                MapMarkerDot siteDot = new MapMarkerDot(site.latitude, site.longitude);
-                siteDot.setBackColor(color);
-                map.addMapMarker(siteDot);
-            }
-
         }
+
+        // Accumulation sites go in one level-of-detail layer rather than a marker each
+        siteLayer = new SiteLayer(clusters, COLORS);
+        map.setSiteLayer(siteLayer);
     }
 
-    private void fitViewport(List<ClusterCenter> clusters) {
-        map.setDisplayToFitMapMarkers(); // Automatically fits all visible markers
+    // Largest zoom that shows every site (256-pixel tiles, as JMapViewer's own fitting assumes)
+    private void fitViewport() {
+        double[] bounds = siteLayer == null ? null : siteLayer.bounds(); // no sites yet while a run is live
+        if (bounds == null || map.getWidth() == 0) {
+            map.setDisplayToFitMapMarkers(); // Automatically fits all visible markers
+            return;
+        }
+        double spanX = Math.max(bounds[2] - bounds[0], 1e-9) * 256;
+        double spanY = Math.max(bounds[3] - bounds[1], 1e-9) * 256;
+        double fit = Math.min(map.getWidth() / spanX, map.getHeight() / spanY);
+        int zoom = (int) Math.max(0, Math.min(JMapViewer.MAX_ZOOM, Math.floor(Math.log(fit) / Math.log(2))));
+        double lon = (bounds[0] + bounds[2]) / 2 * 360 - 180;
+        double lat = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - (bounds[1] + bounds[3])))));
+        map.setDisplayPosition(new Coordinate(lat, lon), zoom);
     }
     
 }
@@ -0,0 +1,200 @@
+package org.kmeans.gui;
+
+import org.kmeans.utils.AccumulationSite;
+import org.kmeans.utils.ClusterCenter;
+import org.openstreetmap.gui.jmapviewer.JMapViewer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Level-of-detail drawing of the assigned sites, instead of one MapMarkerDot per site.
+// Sites are kept as Web Mercator fractions (0..1 across the world) in plain arrays. Each
+// render bins the visible sites into CELL_PIXELS screen cells, one circle per cell, sized by
+// its site count and colored by its most common cluster. Once no more than DOT_LIMIT sites are
+// in view, each site gets its own dot. Rendering runs on a background thread into a
+// BufferedImage; until a new image is ready, the last one is drawn moved and scaled to the
+// current view, so panning and zooming never wait for it.
+class SiteLayer {
+
+    private static final int CELL_PIXELS = 16;
+    private static final int DOT_LIMIT = 20_000;
+    private static final int DOT_RADIUS = 3;
+    private static final double MAX_STALE_SCALE = 4;
+
+    // Where the world's top-left corner is on screen and how wide the world is, in pixels
+    record Viewport(double originX, double originY, double worldWidth, int width, int height) {}
+
+    private final double[] x;
+    private final double[] y;
+    private final int[] cluster;
+    private final Color[] colors;
+    // One render thread for every layer, so replacing a layer leaves no thread behind
+    private static final ExecutorService RENDERER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "site-layer-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Viewport requested;
+    // EDT only
+    private BufferedImage cached;
+    private Viewport cachedViewport;
+
+    SiteLayer(List<ClusterCenter> clusters, Color[] palette) {
+        int n = 0;
+        for (ClusterCenter center : clusters) n += center.assignedSites.size();
+        x = new double[n];
+        y = new double[n];
+        cluster = new int[n];
+        colors = new Color[clusters.size()];
+        int i = 0;
+        for (int c = 0; c < clusters.size(); c++) {
+            colors[c] = palette[c % palette.length];
+            for (AccumulationSite site : clusters.get(c).assignedSites) {
+                x[i] = (site.longitude + 180) / 360;
+                y[i] = mercatorY(site.latitude);
+                cluster[i++] = c;
+            }
+        }
+    }
+
+    // Extent of the sites as Mercator fractions {minX, minY, maxX, maxY}, or null without sites
+    double[] bounds() {
+        if (x.length == 0) return null;
+        double[] bounds = { 1, 1, 0, 0 };
+        for (int i = 0; i < x.length; i++) {
+            bounds[0] = Math.min(bounds[0], x[i]);
+            bounds[1] = Math.min(bounds[1], y[i]);
+            bounds[2] = Math.max(bounds[2], x[i]);
+            bounds[3] = Math.max(bounds[3], y[i]);
+        }
+        return bounds;
+    }
+
+    // The layer was replaced: renders still queued for it are skipped
+    void close() {
+        requested = null;
+    }
+
+    // Called from the map's paintComponent, on the EDT
+    void paint(Graphics2D g, JMapViewer map) {
+        Viewport current = viewportOf(map);
+        if (current == null) return;
+        if (!current.equals(requested)) {
+            requested = current;
+            RENDERER.execute(() -> render(current, map));
+        }
+        if (cached == null) return;
+
+        // Draw the last image where its sites are now; a few zoom levels away it is only a blur
+        double scale = current.worldWidth() / cachedViewport.worldWidth();
+        if (scale > MAX_STALE_SCALE || scale < 1 / MAX_STALE_SCALE) return;
+        int left = (int) Math.round(current.originX() - cachedViewport.originX() * scale);
+        int top = (int) Math.round(current.originY() - cachedViewport.originY() * scale);
+        if (scale == 1) {
+            g.drawImage(cached, left, top, null);
+        } else {
+            g.drawImage(cached, left, top, (int) Math.round(cached.getWidth() * scale),
+                    (int) Math.round(cached.getHeight() * scale), null);
+        }
+    }
+
+    // Two reference points pin the map's projection: lat 0 at lon 0 and at lon 90
+    private static Viewport viewportOf(JMapViewer map) {
+        Point middle = map.getMapPosition(0, 0, false);
+        Point east = map.getMapPosition(0, 90, false);
+        if (middle == null || east == null || map.getWidth() <= 0 || map.getHeight() <= 0) return null;
+        double worldWidth = (east.x - middle.x) * 4.0;
+        return new Viewport(middle.x - worldWidth / 2, middle.y - worldWidth / 2, worldWidth,
+                map.getWidth(), map.getHeight());
+    }
+
+    private void render(Viewport view, JMapViewer map) {
+        if (view != requested) return; // a newer view is queued behind this one
+
+        BufferedImage image = new BufferedImage(view.width(), view.height(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Bin the sites in view (plus a cell of margin, so border symbols are not cut off). Cells
+        // are fixed in world pixels, so panning does not regroup the sites.
+        long firstColumn = (long) Math.floor(-view.originX() / CELL_PIXELS) - 1;
+        long firstRow = (long) Math.floor(-view.originY() / CELL_PIXELS) - 1;
+        int columns = view.width() / CELL_PIXELS + 3;
+        int rows = view.height() / CELL_PIXELS + 3;
+        int[] count = new int[columns * rows];
+        int[] current = new int[columns * rows]; // cluster of the run the cell is in
+        int[] run = new int[columns * rows];
+        int[] best = new int[columns * rows];
+        int[] bestCount = new int[columns * rows];
+        int visible = 0;
+        for (int i = 0; i < x.length; i++) {
+            long column = (long) Math.floor(x[i] * view.worldWidth() / CELL_PIXELS) - firstColumn;
+            long row = (long) Math.floor(y[i] * view.worldWidth() / CELL_PIXELS) - firstRow;
+            if (column < 0 || row < 0 || column >= columns || row >= rows) continue;
+            int cell = (int) row * columns + (int) column;
+            count[cell]++;
+            visible++;
+            // Sites are stored cluster by cluster, so a cell's sites of one cluster arrive as one
+            // run and its length is that cluster's count in the cell
+            if (count[cell] > 1 && current[cell] == cluster[i]) {
+                run[cell]++;
+            } else {
+                if (run[cell] > bestCount[cell]) {
+                    best[cell] = current[cell];
+                    bestCount[cell] = run[cell];
+                }
+                current[cell] = cluster[i];
+                run[cell] = 1;
+            }
+        }
+        for (int cell = 0; cell < count.length; cell++) {
+            if (run[cell] > bestCount[cell]) best[cell] = current[cell];
+        }
+
+        if (visible <= DOT_LIMIT) {
+            for (int i = 0; i < x.length; i++) {
+                int sx = (int) Math.round(view.originX() + x[i] * view.worldWidth());
+                int sy = (int) Math.round(view.originY() + y[i] * view.worldWidth());
+                if (sx < -DOT_RADIUS || sy < -DOT_RADIUS || sx > view.width() + DOT_RADIUS
+                        || sy > view.height() + DOT_RADIUS) continue;
+                g.setColor(colors[cluster[i]]);
+                g.fillOval(sx - DOT_RADIUS, sy - DOT_RADIUS, DOT_RADIUS * 2, DOT_RADIUS * 2);
+                g.setColor(Color.BLACK);
+                g.drawOval(sx - DOT_RADIUS, sy - DOT_RADIUS, DOT_RADIUS * 2, DOT_RADIUS * 2);
+            }
+        } else {
+            for (int cell = 0; cell < count.length; cell++) {
+                if (count[cell] == 0) continue;
+                int cx = (int) Math.round(view.originX() + (firstColumn + cell % columns) * CELL_PIXELS)
+                        + CELL_PIXELS / 2;
+                int cy = (int) Math.round(view.originY() + (firstRow + cell / columns) * CELL_PIXELS)
+                        + CELL_PIXELS / 2;
+                // Area grows with the log of the count, capped so neighbours barely touch
+                int radius = (int) Math.min(CELL_PIXELS * 0.6, 2 + 1.5 * Math.log(count[cell]) / Math.log(2));
+                Color color = colors[best[cell]];
+                g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 190));
+                g.fillOval(cx - radius, cy - radius, radius * 2, radius * 2);
+                g.setColor(color.darker());
+                g.drawOval(cx - radius, cy - radius, radius * 2, radius * 2);
+            }
+        }
+        g.dispose();
+
+        SwingUtilities.invokeLater(() -> {
+            cached = image;
+            cachedViewport = view;
+            map.repaint();
+        });
+    }
+
+    // Web Mercator y as a fraction of the world height, 0 at the top
+    private static double mercatorY(double latitude) {
+        double lat = Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, latitude)));
+        return (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+    }
+}
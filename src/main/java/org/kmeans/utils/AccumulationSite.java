@@ -20,4 +20,14 @@ public class AccumulationSite {
         double dy = longitude - center.longitude;
         return Math.sqrt(dx * dx + dy * dy);
     }
+
+    // Great-circle distance in degrees of arc (multiply by 111.2 for km)
+    public double geodesicDistanceTo(ClusterCenter center) {
+        double lat1 = Math.toRadians(latitude), lat2 = Math.toRadians(center.latitude);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(center.longitude - longitude);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return Math.toDegrees(2 * Math.asin(Math.min(1, Math.sqrt(h))));
+    }
 }
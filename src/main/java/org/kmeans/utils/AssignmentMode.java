@@ -0,0 +1,6 @@
+package org.kmeans.utils;
+
+public enum AssignmentMode {
+    BRUTE_FORCE, // full n x k distance scan every iteration
+    HAMERLY      // per-site upper/lower bounds skip the scan for sites that cannot move
+}
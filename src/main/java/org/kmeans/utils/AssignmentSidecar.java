@@ -0,0 +1,80 @@
+package org.kmeans.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Binary companion to a saved ClusteringResult: the final centroids plus one cluster index
+// per site, in input order, so a reader can rebuild the clusters without any distance work.
+//   int magic "KMSA", int version, int k, int n   (16-byte header)
+//   double centroids[k * 2], int assignment[n]    (little-endian, as in SiteBinaryFormat)
+public class AssignmentSidecar {
+
+    public static final int MAGIC = 0x4B4D5341;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    public final int k;
+    public final double[] centroids;
+    public final int[] assignment;
+
+    public AssignmentSidecar(int k, double[] centroids, int[] assignment) {
+        this.k = k;
+        this.centroids = centroids;
+        this.assignment = assignment;
+    }
+
+    public void write(String path) throws IOException {
+        Path target = Path.of(path);
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = HEADER_BYTES;
+            map(channel, FileChannel.MapMode.READ_WRITE, offset, k * 2L * Double.BYTES)
+                    .asDoubleBuffer().put(centroids, 0, k * 2);
+            offset += k * 2L * Double.BYTES;
+            map(channel, FileChannel.MapMode.READ_WRITE, offset, (long) assignment.length * Integer.BYTES)
+                    .asIntBuffer().put(assignment);
+
+            // Header last, as in SiteBinaryFormat: a write that dies halfway leaves no magic,
+            // so read rejects the file instead of returning zeros
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(SiteBinaryFormat.ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(k).putInt(assignment.length).flip();
+            channel.write(header, 0);
+        }
+    }
+
+    public static AssignmentSidecar read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(SiteBinaryFormat.ORDER);
+            if (channel.read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("Not an assignment sidecar: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported assignment sidecar version " + header.getInt(4) + ": " + path);
+            }
+            int k = header.getInt(8);
+            int n = header.getInt(12);
+
+            double[] centroids = new double[k * 2];
+            int[] assignment = new int[n];
+            long offset = HEADER_BYTES;
+            map(channel, FileChannel.MapMode.READ_ONLY, offset, k * 2L * Double.BYTES)
+                    .asDoubleBuffer().get(centroids);
+            offset += k * 2L * Double.BYTES;
+            map(channel, FileChannel.MapMode.READ_ONLY, offset, (long) n * Integer.BYTES)
+                    .asIntBuffer().get(assignment);
+            return new AssignmentSidecar(k, centroids, assignment);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long bytes)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(mode, offset, bytes);
+        return buffer.order(SiteBinaryFormat.ORDER);
+    }
+}
@@ -0,0 +1,24 @@
+package org.kmeans.utils;
+
+// Counters one assignment pass fills in alongside its sums; parallel engines keep one per
+// range and add them up in range order, like the sums.
+public class AssignmentStats {
+    public long changed;             // sites whose cluster differs from the one already in assignment[]
+    public double inertia;           // weighted squared distance of the sites to the centers they were given
+    public long distanceEvaluations; // site-to-center distances (dot products in geodesic mode) computed
+    public long prunedEvaluations;   // distances a full scan would have computed but bounds ruled out
+
+    public void reset() {
+        changed = 0;
+        inertia = 0;
+        distanceEvaluations = 0;
+        prunedEvaluations = 0;
+    }
+
+    public void add(AssignmentStats other) {
+        changed += other.changed;
+        inertia += other.inertia;
+        distanceEvaluations += other.distanceEvaluations;
+        prunedEvaluations += other.prunedEvaluations;
+    }
+}
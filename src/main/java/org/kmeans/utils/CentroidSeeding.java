@@ -0,0 +1,220 @@
+package org.kmeans.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Initial center selection shared by every engine. Results are flat k x 2 centroid matrices.
+// The k-means|| building blocks work on one shard at a time so DistributedKMeansMPJ can run
+// the rounds across its workers and only combine the scalar costs and sampled candidates.
+// On a weighted dataset a site of weight w counts as w coincident sites.
+public class CentroidSeeding {
+
+    public static final int PARALLEL_ROUNDS = 5;
+
+    // The engines' entry point: a copy of options.initialCentroids when set (a warm start),
+    // otherwise options.seeding
+    public static double[] seed(SiteDataset data, ClusteringOptions options) {
+        if (options.initialCentroids != null) {
+            if (options.initialCentroids.length != options.k * 2) {
+                throw new IllegalArgumentException("Expected " + options.k + " initial centers, got "
+                        + options.initialCentroids.length / 2);
+            }
+            return options.initialCentroids.clone();
+        }
+        return seed(data, options.k, options.seeding, options.newRandom());
+    }
+
+    public static double[] seed(SiteDataset data, int k, SeedingStrategy strategy, Random rand) {
+        if (data.size == 0) {
+            throw new IllegalArgumentException("Cannot seed centers from an empty dataset");
+        }
+        return switch (strategy) {
+            case RANDOM -> random(data, k, rand);
+            case KMEANS_PLUS_PLUS -> kMeansPlusPlus(data, k, rand);
+            case KMEANS_PARALLEL -> kMeansParallel(data, k, rand);
+        };
+    }
+
+    // k random sites, distinct as long as there are at least k of them
+    public static double[] random(SiteDataset data, int k, Random rand) {
+        double[] centroids = new double[k * 2];
+        Set<Integer> picked = new HashSet<>();
+        for (int c = 0; c < k; c++) {
+            int i = rand.nextInt(data.size);
+            while (picked.size() < data.size && !picked.add(i)) {
+                i = rand.nextInt(data.size);
+            }
+            centroids[c * 2] = data.lat[i];
+            centroids[c * 2 + 1] = data.lon[i];
+        }
+        return centroids;
+    }
+
+    public static double[] kMeansPlusPlus(SiteDataset data, int k, Random rand) {
+        double[] centroids = new double[k * 2];
+        double[] minDist = new double[data.size];
+        Arrays.fill(minDist, Double.MAX_VALUE);
+
+        int first = pickFirst(data, rand);
+        centroids[0] = data.lat[first];
+        centroids[1] = data.lon[first];
+        double cost = updateMinDistances(data, minDist, centroids, 0, 1);
+
+        for (int c = 1; c < k; c++) {
+            int i = cost > 0 ? sampleByWeight(minDist, data.weight, data.size, cost, rand) : rand.nextInt(data.size);
+            centroids[c * 2] = data.lat[i];
+            centroids[c * 2 + 1] = data.lon[i];
+            cost = updateMinDistances(data, minDist, centroids, c, c + 1);
+        }
+        return centroids;
+    }
+
+    // Keeps the first `from` centers of `centroids` and adds k - from more by k-means++ sampling
+    // against them; warm-starts a larger k from a smaller k's solution
+    public static double[] extend(SiteDataset data, double[] centroids, int from, int k, Random rand) {
+        double[] extended = Arrays.copyOf(centroids, k * 2);
+        if (from == 0) return kMeansPlusPlus(data, k, rand);
+        double[] minDist = new double[data.size];
+        Arrays.fill(minDist, Double.MAX_VALUE);
+        double cost = updateMinDistances(data, minDist, extended, 0, from);
+
+        for (int c = from; c < k; c++) {
+            int i = cost > 0 ? sampleByWeight(minDist, data.weight, data.size, cost, rand) : rand.nextInt(data.size);
+            extended[c * 2] = data.lat[i];
+            extended[c * 2 + 1] = data.lon[i];
+            cost = updateMinDistances(data, minDist, extended, c, c + 1);
+        }
+        return extended;
+    }
+
+    // Single-node k-means||: the whole dataset is one shard
+    public static double[] kMeansParallel(SiteDataset data, int k, Random rand) {
+        double[] minDist = new double[data.size];
+        Arrays.fill(minDist, Double.MAX_VALUE);
+
+        int first = pickFirst(data, rand);
+        double[] candidates = { data.lat[first], data.lon[first] };
+        int count = 1;
+        double cost = updateMinDistances(data, minDist, candidates, 0, 1);
+
+        for (int round = 0; round < PARALLEL_ROUNDS && cost > 0; round++) {
+            double[] sampled = sampleOversampled(data, minDist, 2.0 * k, cost, rand);
+            candidates = Arrays.copyOf(candidates, candidates.length + sampled.length);
+            System.arraycopy(sampled, 0, candidates, count * 2, sampled.length);
+            int before = count;
+            count += sampled.length / 2;
+            cost = updateMinDistances(data, minDist, candidates, before, count);
+        }
+
+        double[] weights = candidateWeights(data, candidates, count);
+        return weightedKMeansPlusPlus(candidates, weights, count, k, rand);
+    }
+
+    // Lowers minDist[i] to the squared distance to candidates [from, to); returns the shard
+    // cost (the weighted sum of minDist)
+    public static double updateMinDistances(SiteDataset shard, double[] minDist, double[] candidates,
+                                            int from, int to) {
+        double cost = 0;
+        for (int i = 0; i < shard.size; i++) {
+            double best = minDist[i];
+            for (int c = from; c < to; c++) {
+                double dx = shard.lat[i] - candidates[c * 2];
+                double dy = shard.lon[i] - candidates[c * 2 + 1];
+                double d = dx * dx + dy * dy;
+                if (d < best) best = d;
+            }
+            minDist[i] = best;
+            cost += shard.weight(i) * best;
+        }
+        return cost;
+    }
+
+    // One k-means|| round on a shard: keeps each site with probability min(1, l * w * d^2 / totalCost)
+    public static double[] sampleOversampled(SiteDataset shard, double[] minDist, double l, double totalCost,
+                                             Random rand) {
+        double[] sampled = new double[16];
+        int n = 0;
+        for (int i = 0; i < shard.size; i++) {
+            if (rand.nextDouble() < l * shard.weight(i) * minDist[i] / totalCost) {
+                if (n * 2 == sampled.length) sampled = Arrays.copyOf(sampled, sampled.length * 2);
+                sampled[n * 2] = shard.lat[i];
+                sampled[n * 2 + 1] = shard.lon[i];
+                n++;
+            }
+        }
+        return Arrays.copyOf(sampled, n * 2);
+    }
+
+    // Total weight of the shard sites closest to each candidate
+    public static double[] candidateWeights(SiteDataset shard, double[] candidates, int count) {
+        double[] weights = new double[count];
+        DistanceKernel.Centers centers = DistanceKernel.prepare(candidates, count);
+        double[] scratch = centers.newScratch();
+        for (int i = 0; i < shard.size; i++) {
+            weights[DistanceKernel.nearest(shard.lat[i], shard.lon[i], centers, scratch)] += shard.weight(i);
+        }
+        return weights;
+    }
+
+    // Reduces the oversampled candidates to k centers
+    public static double[] weightedKMeansPlusPlus(double[] points, double[] weights, int count, int k,
+                                                  Random rand) {
+        double[] centroids = new double[k * 2];
+        double[] score = new double[count];
+        double[] minDist = new double[count];
+        Arrays.fill(minDist, Double.MAX_VALUE);
+
+        int i = sampleByWeight(weights, count, sum(weights, count), rand);
+        for (int c = 0; c < k; c++) {
+            centroids[c * 2] = points[i * 2];
+            centroids[c * 2 + 1] = points[i * 2 + 1];
+
+            double total = 0;
+            for (int j = 0; j < count; j++) {
+                double dx = points[j * 2] - centroids[c * 2];
+                double dy = points[j * 2 + 1] - centroids[c * 2 + 1];
+                minDist[j] = Math.min(minDist[j], dx * dx + dy * dy);
+                score[j] = weights[j] * minDist[j];
+                total += score[j];
+            }
+            // Fewer distinct candidates than k: fall back to weight-proportional picks
+            i = total > 0 ? sampleByWeight(score, count, total, rand)
+                    : sampleByWeight(weights, count, sum(weights, count), rand);
+        }
+        return centroids;
+    }
+
+    // A random site, in proportion to its weight
+    private static int pickFirst(SiteDataset data, Random rand) {
+        if (data.weight == null) return rand.nextInt(data.size);
+        return sampleByWeight(data.weight, data.size, data.totalWeight(), rand);
+    }
+
+    private static int sampleByWeight(double[] weights, int n, double total, Random rand) {
+        return sampleByWeight(weights, null, n, total, rand);
+    }
+
+    // Picks i with probability weights[i] * factor[i] / total (factor null = all ones)
+    private static int sampleByWeight(double[] weights, double[] factor, int n, double total, Random rand) {
+        if (!(total > 0)) return rand.nextInt(n);
+        double target = rand.nextDouble() * total;
+        double running = 0;
+        for (int i = 0; i < n; i++) {
+            running += factor == null ? weights[i] : weights[i] * factor[i];
+            if (running > target) return i;
+        }
+        // Rounding left target at the very top: take the last site with weight
+        for (int i = n - 1; i > 0; i--) {
+            if (weights[i] > 0 && (factor == null || factor[i] > 0)) return i;
+        }
+        return 0;
+    }
+
+    private static double sum(double[] values, int n) {
+        double total = 0;
+        for (int i = 0; i < n; i++) total += values[i];
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package org.kmeans.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared primitive kernels for the clustering engines.
+// Centroids are a flat row-major k x 2 matrix: [lat0, lon0, lat1, lon1, ...]
+public class ClusterKernels {
+
+    // Assigns sites [from, to) and accumulates per-cluster weighted coordinate sums and total
+    // weights (plain sums and site counts when the dataset has no weights)
+    public static void assignRange(SiteDataset data, int from, int to, double[] centroids, int k,
+                                   int[] assignment, double[] sums, double[] weights) {
+        assignRange(data, from, to, centroids, k, assignment, sums, weights, null);
+    }
+
+    // Same, also counting into stats when it is not null
+    public static void assignRange(SiteDataset data, int from, int to, double[] centroids, int k,
+                                   int[] assignment, double[] sums, double[] weights, AssignmentStats stats) {
+        assignRange(data, from, to, centroids, DistanceKernel.prepare(centroids, k), assignment, sums, weights,
+                stats);
+    }
+
+    // Same, with centers already prepared from centroids; parallel engines prepare them once per
+    // iteration and share them across the leaves
+    public static void assignRange(SiteDataset data, int from, int to, double[] centroids,
+                                   DistanceKernel.Centers centers, int[] assignment, double[] sums,
+                                   double[] weights, AssignmentStats stats) {
+        double[] lat = data.lat;
+        double[] lon = data.lon;
+        double[] weight = data.weight;
+        int k = centers.k;
+        double[] scratch = centers.newScratch();
+        for (int i = from; i < to; i++) {
+            int c = DistanceKernel.nearest(lat[i], lon[i], centers, scratch);
+            double w = weight == null ? 1 : weight[i];
+            if (stats != null) {
+                if (assignment[i] != c) stats.changed++;
+                double dx = lat[i] - centroids[c * 2];
+                double dy = lon[i] - centroids[c * 2 + 1];
+                stats.inertia += w * (dx * dx + dy * dy);
+            }
+            assignment[i] = c;
+            sums[c * 2] += w * lat[i];
+            sums[c * 2 + 1] += w * lon[i];
+            weights[c] += w;
+        }
+        if (stats != null) stats.distanceEvaluations += (long) (to - from) * k;
+    }
+
+    // Moves each center with weight to the weighted mean of its sites; returns the farthest any
+    // center moved (0 when none moved), which the engines compare against options.tolerance
+    public static double updateCentroids(double[] centroids, double[] sums, double[] weights, int k) {
+        double maxShift = 0;
+        for (int c = 0; c < k; c++) {
+            if (weights[c] == 0) continue;
+
+            double newLat = sums[c * 2] / weights[c];
+            double newLon = sums[c * 2 + 1] / weights[c];
+            double dLat = newLat - centroids[c * 2];
+            double dLon = newLon - centroids[c * 2 + 1];
+            maxShift = Math.max(maxShift, Math.sqrt(dLat * dLat + dLon * dLon));
+            centroids[c * 2] = newLat;
+            centroids[c * 2 + 1] = newLon;
+        }
+        return maxShift;
+    }
+
+    // Farthest distance between matching centers of two centroid matrices
+    public static double maxShift(double[] before, double[] after, int k) {
+        double maxShift = 0;
+        for (int c = 0; c < k; c++) {
+            double dLat = after[c * 2] - before[c * 2];
+            double dLon = after[c * 2 + 1] - before[c * 2 + 1];
+            maxShift = Math.max(maxShift, Math.sqrt(dLat * dLat + dLon * dLon));
+        }
+        return maxShift;
+    }
+
+    // Rebuilds the object model once, for ClusteringResult and MapWindow
+    public static ClusteringResult buildResult(SiteDataset data, double[] centroids, int k, int[] assignment,
+                                               int cycles, double finalShift, long durationMillis) {
+        List<ClusterCenter> centers = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            centers.add(new ClusterCenter(centroids[c * 2], centroids[c * 2 + 1]));
+        }
+        for (int i = 0; i < data.size; i++) {
+            centers.get(assignment[i]).assignedSites.add(data.toSite(i));
+        }
+        ClusteringResult result = new ClusteringResult(centers, cycles, finalShift, durationMillis);
+        result.assignment = assignment;
+        return result;
+    }
+}
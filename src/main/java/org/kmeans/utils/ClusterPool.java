@@ -0,0 +1,46 @@
+package org.kmeans.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Long-lived work-stealing pools shared by the parallel engines, one per thread count
+public class ClusterPool {
+
+    private static final Map<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    // parallelism <= 0 means one thread per available core
+    public static ForkJoinPool get(int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return pools.computeIfAbsent(threads, ForkJoinPool::new);
+    }
+
+    // Runs body(0..count-1) on the pool, splitting the index range in halves so idle
+    // workers can steal the larger pending half
+    public static void forEach(ForkJoinPool pool, int count, IntConsumer body) {
+        if (count > 0) pool.invoke(new RangeTask(0, count, body));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer body;
+
+        RangeTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                body.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, body), new RangeTask(mid, to, body));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.kmeans.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-iteration record of a run, attached to ClusteringResult.metrics. Every iteration
+// recorded here is also emitted as an IterationEvent for Flight Recorder.
+public class ClusteringMetrics {
+    public String engine;
+    public List<IterationMetrics> iterations = new ArrayList<>();
+
+    // ✅ Default constructor needed by Jackson
+    public ClusteringMetrics() {}
+
+    public ClusteringMetrics(String engine) {
+        this.engine = engine;
+    }
+
+    // event is the IterationEvent started when the iteration began
+    void record(IterationMetrics iteration, IterationEvent event) {
+        iterations.add(iteration);
+        event.emit(engine, iteration);
+    }
+
+    // One row per iteration; distributed runs add a compute and a communication column per rank
+    public String toCsv() {
+        int ranks = 0;
+        for (IterationMetrics m : iterations) {
+            if (m.rankComputeNanos != null) ranks = Math.max(ranks, m.rankComputeNanos.length);
+        }
+        StringBuilder csv = new StringBuilder("engine,iteration,assign_ns,update_ns,changed,inertia,shift,"
+                + "distance_evaluations,pruned_evaluations");
+        for (int r = 0; r < ranks; r++) {
+            csv.append(",rank").append(r).append("_compute_ns,rank").append(r).append("_communication_ns");
+        }
+        csv.append('\n');
+        for (IterationMetrics m : iterations) {
+            csv.append(engine).append(',').append(m.iteration).append(',').append(m.assignNanos).append(',')
+                    .append(m.updateNanos).append(',').append(m.changed).append(',').append(m.inertia).append(',')
+                    .append(m.shift).append(',').append(m.distanceEvaluations).append(',')
+                    .append(m.prunedEvaluations);
+            for (int r = 0; r < ranks; r++) {
+                boolean has = m.rankComputeNanos != null && r < m.rankComputeNanos.length;
+                csv.append(',').append(has ? String.valueOf(m.rankComputeNanos[r]) : "")
+                        .append(',').append(has ? String.valueOf(m.rankCommunicationNanos[r]) : "");
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    public void writeCsv(String path) throws IOException {
+        Files.writeString(Path.of(path), toCsv());
+    }
+
+    public void writeJson(String path) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(path), this);
+    }
+}
@@ -0,0 +1,46 @@
+package org.kmeans.utils;
+
+import java.util.Random;
+
+// Tuning knobs shared by the single-node engines
+public class ClusteringOptions {
+    public int k;
+    public int maxIterations;
+    public double tolerance = 0; // stop once no center moves farther than this (degrees); 0 = until nothing moves
+    public AssignmentMode assignment = AssignmentMode.BRUTE_FORCE;
+    public SeedingStrategy seeding = SeedingStrategy.KMEANS_PLUS_PLUS;
+    public DistanceMode distance = DistanceMode.PLANAR; // GEODESIC: KMeans, KMeansParallel, in-process MPJ; scans every center
+    public Long seed = null; // null = different initial centers on every run
+    public double[] initialCentroids = null; // flat k x 2 lat/lon; set to warm-start instead of seeding
+    public int threads = 0;  // parallel engines; 0 = one per available core
+    public boolean cache = false; // look the run up in ResultCache first, and store it there
+    public ProgressListener progress = null; // KMeans, KMeansParallel: gets centroid snapshots while running
+    public int progressEveryIterations = 0; // publish every this many iterations; 0 = not by iteration count
+    public long progressEveryMillis = 250;  // ...or once this much time has passed; 0 = not by time
+
+    public ClusteringOptions(int k, int maxIterations) {
+        this.k = k;
+        this.maxIterations = maxIterations;
+    }
+
+    // Same settings, for runs that change one of them (e.g. k in a sweep)
+    public ClusteringOptions copy() {
+        ClusteringOptions copy = new ClusteringOptions(k, maxIterations);
+        copy.tolerance = tolerance;
+        copy.assignment = assignment;
+        copy.seeding = seeding;
+        copy.distance = distance;
+        copy.seed = seed;
+        copy.initialCentroids = initialCentroids;
+        copy.threads = threads;
+        copy.cache = cache;
+        copy.progress = progress;
+        copy.progressEveryIterations = progressEveryIterations;
+        copy.progressEveryMillis = progressEveryMillis;
+        return copy;
+    }
+
+    public Random newRandom() {
+        return seed == null ? new Random() : new Random(seed);
+    }
+}
@@ -1,11 +1,18 @@
 package org.kmeans.utils;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ClusteringResult {
     public List<ClusterCenter> centers;
     public int cycles;
+    public double finalShift; // farthest any center moved in the last cycle, in degrees
     public long durationMillis;
+    @JsonIgnore
+    public int[] assignment; // cluster of each input site, in input order (not saved; see WarmStart)
+    @JsonIgnore
+    public ClusteringMetrics metrics; // per-iteration timings and counters, when the engine records them
 
     // ✅ Default constructor needed by Jackson
     public ClusteringResult() {}
@@ -15,4 +22,9 @@ public class ClusteringResult {
         this.cycles = cycles;
         this.durationMillis = durationMillis;
     }
+
+    public ClusteringResult(List<ClusterCenter> centers, int cycles, double finalShift, long durationMillis) {
+        this(centers, cycles, durationMillis);
+        this.finalShift = finalShift;
+    }
 }
@@ -0,0 +1,42 @@
+package org.kmeans.utils;
+
+// The message passing DistributedKMeansMPJ needs, so the same algorithm runs on MPJ Express
+// (MpjCommunicator) or on threads inside one JVM (ThreadCommunicator).
+// Rooted operations are always rooted at rank 0; failures surface as RuntimeExceptions.
+public interface Communicator {
+
+    int rank();
+
+    int size();
+
+    void send(double[] buf, int offset, int count, int dest, int tag);
+
+    void send(int[] buf, int offset, int count, int dest, int tag);
+
+    void recv(double[] buf, int offset, int count, int source, int tag);
+
+    void recv(int[] buf, int offset, int count, int source, int tag);
+
+    void bcast(double[] buf, int offset, int count);
+
+    void bcast(int[] buf, int offset, int count);
+
+    // recv[0, count) = element-wise sum of every rank's send[0, count), on every rank
+    void allreduceSum(double[] send, double[] recv, int count);
+
+    // One int from each rank; recv[r] = rank r's send[0], on every rank
+    void allgather(int[] send, int[] recv);
+
+    // Rank r's send[0, counts[r]) lands at recv[displs[r]], on every rank
+    void allgatherv(double[] send, double[] recv, int[] counts, int[] displs);
+
+    // One int from each rank into recv[r] on rank 0
+    void gather(int[] send, int[] recv);
+
+    // Rank r's whole send buffer lands at recv[displs[r]] on rank 0; counts and displs are
+    // only read there
+    void gatherv(int[] send, int[] recv, int[] counts, int[] displs);
+
+    // Rank 0's send[displs[r], displs[r] + counts[r]) lands in rank r's recv[0, counts[r])
+    void scatterv(double[] send, int[] counts, int[] displs, double[] recv);
+}
@@ -0,0 +1,141 @@
+package org.kmeans.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+// Grid-bucketed weighted coreset. Sites are binned into square cells of `cellDegrees`; each
+// non-empty cell becomes one weighted point at the weighted mean of its sites, carrying their
+// total weight and total capacity. For any set of centers C,
+//   cost(sites, C) <= cost(coreset, C) + compressionError
+// where compressionError is the weighted spread of the sites around their cell means, at most
+// totalWeight * 2 * cellDegrees^2. The engines iterate on the coreset only; one assignment
+// pass over the real sites then builds the final clusters.
+public class Coreset {
+
+    // About 1 km: merges the near-duplicate coordinates in the inputs without blurring towns
+    public static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    public final SiteDataset points;
+    public final int[] cell;              // site -> coreset point
+    public final double compressionError; // weighted squared distance of the sites to their points
+    public final double cellDegrees;
+
+    private Coreset(SiteDataset points, int[] cell, double compressionError, double cellDegrees) {
+        this.points = points;
+        this.cell = cell;
+        this.compressionError = compressionError;
+        this.cellDegrees = cellDegrees;
+    }
+
+    // Uses data.weight when set (e.g. weightedByCapacity()), otherwise every site counts once
+    public static Coreset build(SiteDataset data, double cellDegrees) {
+        if (!(cellDegrees > 0)) {
+            throw new IllegalArgumentException("Coreset cell size must be positive: " + cellDegrees);
+        }
+        int[] cell = new int[data.size];
+        Map<Long, Integer> cells = new HashMap<>();
+        double[] sumLat = new double[16], sumLon = new double[16], sumCap = new double[16], sumWeight = new double[16];
+        int count = 0;
+
+        for (int i = 0; i < data.size; i++) {
+            long row = (long) Math.floor(data.lat[i] / cellDegrees);
+            long col = (long) Math.floor(data.lon[i] / cellDegrees);
+            long key = (row << 32) ^ (col & 0xFFFFFFFFL);
+            Integer id = cells.get(key);
+            if (id == null) {
+                id = count++;
+                cells.put(key, id);
+                if (count > sumLat.length) {
+                    int grown = sumLat.length * 2;
+                    sumLat = Arrays.copyOf(sumLat, grown);
+                    sumLon = Arrays.copyOf(sumLon, grown);
+                    sumCap = Arrays.copyOf(sumCap, grown);
+                    sumWeight = Arrays.copyOf(sumWeight, grown);
+                }
+            }
+            double w = data.weight(i);
+            cell[i] = id;
+            sumLat[id] += w * data.lat[i];
+            sumLon[id] += w * data.lon[i];
+            sumCap[id] += data.capacity[i];
+            sumWeight[id] += w;
+        }
+
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        double[] capacity = new double[count];
+        double[] weight = new double[count];
+        for (int p = 0; p < count; p++) {
+            // A cell whose sites all weigh 0 has no mean; it takes its first site's
+            // coordinates below and never pulls on a center
+            lat[p] = sumWeight[p] > 0 ? sumLat[p] / sumWeight[p] : Double.NaN;
+            lon[p] = sumWeight[p] > 0 ? sumLon[p] / sumWeight[p] : Double.NaN;
+            capacity[p] = sumCap[p];
+            weight[p] = sumWeight[p];
+        }
+
+        double error = 0;
+        for (int i = 0; i < data.size; i++) {
+            int p = cell[i];
+            if (Double.isNaN(lat[p])) {
+                lat[p] = data.lat[i];
+                lon[p] = data.lon[i];
+            }
+            double dLat = data.lat[i] - lat[p];
+            double dLon = data.lon[i] - lon[p];
+            error += data.weight(i) * (dLat * dLat + dLon * dLon);
+        }
+
+        return new Coreset(new SiteDataset(lat, lon, capacity, weight), cell, error, cellDegrees);
+    }
+
+    // Clusters the coreset with `engine` (e.g. KMeansParallel::cluster), then assigns every
+    // original site to the final centers. Cycles and shift are the engine's; the run time
+    // covers building the coreset and the final pass too.
+    public static ClusteringResult cluster(SiteDataset data, ClusteringOptions options, double cellDegrees,
+                                           BiFunction<SiteDataset, ClusteringOptions, ClusteringResult> engine) {
+        long startTime = System.nanoTime();
+        Coreset coreset = build(data, cellDegrees);
+        System.out.println("Coreset: " + data.size + " sites -> " + coreset.points.size
+                + " weighted points (" + cellDegrees + "° cells, compression error "
+                + coreset.compressionError + ").");
+
+        ClusteringResult reduced = engine.apply(coreset.points, options);
+
+        int k = reduced.centers.size();
+        double[] centroids = new double[k * 2];
+        for (int c = 0; c < k; c++) {
+            centroids[c * 2] = reduced.centers.get(c).latitude;
+            centroids[c * 2 + 1] = reduced.centers.get(c).longitude;
+        }
+
+        // The cells do not respect cluster borders, so look up every site's own nearest center
+        int[] assignment = new int[data.size];
+        int chunk = 1 << 16;
+        int chunks = (data.size + chunk - 1) / chunk;
+        ForkJoinPool pool = ClusterPool.get(options.threads);
+        boolean geodesic = options.distance == DistanceMode.GEODESIC;
+        GeodesicKernel.UnitVectors vectors = geodesic ? GeodesicKernel.UnitVectors.of(data, pool) : null;
+        double[] centers = geodesic ? GeodesicKernel.fromLatLon(centroids, k) : null;
+        GeodesicKernel.Centers preparedVectors = geodesic ? GeodesicKernel.prepare(centers, k) : null;
+        DistanceKernel.Centers prepared = geodesic ? null : DistanceKernel.prepare(centroids, k);
+        ClusterPool.forEach(pool, chunks, part -> {
+            int from = part * chunk;
+            int to = Math.min(data.size, from + chunk);
+            if (geodesic) {
+                GeodesicKernel.assignRange(vectors, from, to, centers, preparedVectors, assignment,
+                        new double[k * 3], new double[k], null);
+            } else {
+                ClusterKernels.assignRange(data, from, to, centroids, prepared, assignment,
+                        new double[k * 2], new double[k], null);
+            }
+        });
+
+        long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+        return ClusterKernels.buildResult(data, centroids, k, assignment, reduced.cycles, reduced.finalShift,
+                durationMillis);
+    }
+}
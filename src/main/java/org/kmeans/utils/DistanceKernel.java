@@ -0,0 +1,92 @@
+package org.kmeans.utils;
+
+// Nearest-center kernel shared by KMeans, KMeansParallel, MiniBatchKMeans and the MPJ workers.
+// Uses jdk.incubator.vector when the module is resolved at runtime (--add-modules
+// jdk.incubator.vector) and a scalar loop otherwise; -Dkmeans.scalarKernel=true forces scalar.
+// Both paths compute dx * dx + dy * dy lane by lane without fusing, so they pick the same centers.
+public class DistanceKernel {
+
+    public static final boolean VECTORIZED = detectVectorSupport();
+
+    // Centers transposed to lat/lon columns and padded to a whole number of vector lanes.
+    // Padding sits at +infinity so it can never be the nearest center.
+    public static class Centers {
+        public final int k;
+        public final int padded;
+        final double[] lat;
+        final double[] lon;
+
+        private Centers(int k, int padded) {
+            this.k = k;
+            this.padded = padded;
+            this.lat = new double[padded];
+            this.lon = new double[padded];
+        }
+
+        public double[] newScratch() {
+            return new double[padded];
+        }
+    }
+
+    // Call once per iteration with the flat k x 2 centroid matrix
+    public static Centers prepare(double[] centroids, int k) {
+        int lanes = VECTORIZED ? VectorDistanceKernel.LANES : 1;
+        Centers centers = new Centers(k, (k + lanes - 1) / lanes * lanes);
+        for (int c = 0; c < k; c++) {
+            centers.lat[c] = centroids[c * 2];
+            centers.lon[c] = centroids[c * 2 + 1];
+        }
+        for (int c = k; c < centers.padded; c++) {
+            centers.lat[c] = Double.POSITIVE_INFINITY;
+            centers.lon[c] = Double.POSITIVE_INFINITY;
+        }
+        return centers;
+    }
+
+    // Index of the nearest center (lowest index wins ties); scratch comes from newScratch()
+    public static int nearest(double lat, double lon, Centers centers, double[] scratch) {
+        if (VECTORIZED) {
+            return VectorDistanceKernel.nearest(lat, lon, centers.lat, centers.lon, centers.padded);
+        }
+        return nearestScalar(lat, lon, centers.lat, centers.lon, centers.k);
+    }
+
+    // Fills scratch[0, k) with the squared distance from the site to every center
+    public static void squaredDistances(double lat, double lon, Centers centers, double[] scratch) {
+        if (VECTORIZED) {
+            VectorDistanceKernel.squaredDistances(lat, lon, centers.lat, centers.lon, centers.padded, scratch);
+            return;
+        }
+        for (int c = 0; c < centers.k; c++) {
+            double dx = lat - centers.lat[c];
+            double dy = lon - centers.lon[c];
+            scratch[c] = dx * dx + dy * dy;
+        }
+    }
+
+    static int nearestScalar(double lat, double lon, double[] cLat, double[] cLon, int k) {
+        int best = 0;
+        double bestDist = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double dx = lat - cLat[c];
+            double dy = lon - cLon[c];
+            double dist = dx * dx + dy * dy;
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static boolean detectVectorSupport() {
+        if (Boolean.getBoolean("kmeans.scalarKernel")) return false;
+        try {
+            // Check the module before touching any class that links against it
+            return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                    && VectorDistanceKernel.LANES > 1;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.kmeans.utils;
+
+public enum DistanceMode {
+    PLANAR,   // lat/lon treated as flat x/y degrees
+    GEODESIC  // great-circle distance: sites as 3-D unit vectors, nearest = largest dot product
+}
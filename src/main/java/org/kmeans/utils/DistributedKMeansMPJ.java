@@ -3,12 +3,49 @@ package org.kmeans.utils;
 import mpi.MPI;
 
 import java.io.File;
-import java.io.Serializable;
+import java.io.IOException;
 import java.util.*;
-
+import java.util.concurrent.atomic.AtomicReference;
+
+// Every rank, the master included, clusters one contiguous shard of the sites. Each
+// iteration the partial sums and counts are combined with a single Allreduce, so every
+// rank ends up with the global totals and applies the centroid update itself, and rank 0
+// broadcasts one int saying whether to go on; there is no serial receive loop on rank 0
+// and the per-iteration cost grows with log(P).
+// The message passing goes through a Communicator: MPJ Express when launched with mpjrun,
+// or one thread per rank inside this JVM (clusterInProcess) when MPJ is not installed.
 public class DistributedKMeansMPJ {
 
     private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 0; // same default as ClusteringOptions.tolerance
+    private static final SeedingStrategy SEEDING = SeedingStrategy.KMEANS_PARALLEL;
+    private static final DistanceMode DISTANCE = DistanceMode.PLANAR;
+
+    private static final String RESULT_PATH = "results/distributed_result.json";
+    public static final String ASSIGNMENTS_PATH = "results/distributed_assignments.bin";
+    public static final String METRICS_PATH = "results/distributed_metrics.csv";
+
+    // Sites changed, inertia and distance evaluations ride along in each iteration's Allreduce
+    private static final int STAT_COUNT = 3;
+
+    private final Communicator comm;
+    private final int rank;
+    private final int size;
+
+    // Read on every rank; the master and the workers must agree
+    private int maxIterations = MAX_ITERATIONS;
+    private double tolerance = TOLERANCE;
+    private SeedingStrategy seeding = SEEDING;
+    private DistanceMode distance = DISTANCE;
+    private double[] initialCentroids = null; // master only; replaces seeding
+    private Long seed = null; // null = different initial centers on every run
+    private boolean verbose = true;
+
+    public DistributedKMeansMPJ(Communicator comm) {
+        this.comm = comm;
+        this.rank = comm.rank();
+        this.size = comm.size();
+    }
 
     public static void main(String[] args) throws Exception {
 
@@ -19,12 +56,11 @@ public class DistributedKMeansMPJ {
 
         // --- Init MPI ---
         MPI.Init(args);
-        int rank = MPI.COMM_WORLD.Rank();
-        int size = MPI.COMM_WORLD.Size();
+        DistributedKMeansMPJ kmeans = new DistributedKMeansMPJ(new MpjCommunicator());
 
         // Expect LAST 3 args: sites.json, numClusters, numSites
         if (args.length < 3) {
-            if (rank == 0) {
+            if (kmeans.rank == 0) {
                 System.out.println(
                         "Usage: mpjrun.sh -np <procs> DistributedKMeansMPJ <sites.json> <numClusters> <numSites>");
             }
@@ -37,79 +73,120 @@ public class DistributedKMeansMPJ {
         int k = Integer.parseInt(args[args.length - 2]);
         int numSitesRequested = Integer.parseInt(args[args.length - 1]);
 
-        if (rank == 0) {
+        if (kmeans.rank == 0) {
             System.out.println("[MASTER] Trying to load file: " + sitesFile +
                     " (exists? " + new File(sitesFile).exists() + ")");
-            runMaster(sitesFile, k, size, numSitesRequested);
+            Convergence run = kmeans.runMaster(sitesFile, null, k, numSitesRequested);
+            saveResult(run, k);
         } else {
-            runWorker(k);
+            kmeans.runWorker(sitesFile, k, numSitesRequested);
         }
 
         MPI.Finalize();
     }
 
+    // Runs the same algorithm with `ranks` threads as ranks and no MPJ installation.
+    // Rank 0 scatters `data`, so the shards and messages match an mpjrun on that data.
+    public static ClusteringResult clusterInProcess(SiteDataset data, ClusteringOptions options, int ranks) {
+        if (options.cache) {
+            // The rank count only changes summation order, like the thread count elsewhere
+            return ResultCache.shared().computeIfAbsent("DistributedKMeansMPJ", data, options,
+                    (d, o) -> runInProcess(d, o, ranks));
+        }
+        return runInProcess(data, options, ranks);
+    }
+
+    private static ClusteringResult runInProcess(SiteDataset data, ClusteringOptions options, int ranks) {
+        AtomicReference<Convergence> outcome = new AtomicReference<>();
+        ThreadCommunicator.run(ranks, comm -> {
+            DistributedKMeansMPJ kmeans = new DistributedKMeansMPJ(comm);
+            kmeans.maxIterations = options.maxIterations;
+            kmeans.tolerance = options.tolerance;
+            kmeans.seeding = options.seeding;
+            kmeans.distance = options.distance;
+            kmeans.initialCentroids = options.initialCentroids;
+            kmeans.seed = options.seed;
+            kmeans.verbose = false;
+            if (comm.rank() == 0) {
+                outcome.set(kmeans.runMaster(null, data, options.k, data.size));
+            } else {
+                kmeans.runWorker(null, options.k, data.size);
+            }
+        });
+        Convergence run = outcome.get();
+        ClusteringResult result = ClusterKernels.buildResult(data, run.centroids, options.k, run.assignment,
+                run.cycles, run.shift, run.durationMillis);
+        result.metrics = run.metrics;
+        return result;
+    }
+
     // --- MASTER ---
-    private static void runMaster(String sitesFile, int k, int size, int numSitesRequested) throws Exception {
+    // With allData set the sites are scattered from it and sitesFile is not read
+    private Convergence runMaster(String sitesFile, SiteDataset allData, int k, int numSitesRequested) {
 
         long startTime = System.currentTimeMillis(); // ✅ Start runtime tracking
 
-        System.out.println("[MASTER] Loading " + numSitesRequested + " sites...");
-        List<AccumulationSite> allSites = SiteLoader.loadSites(sitesFile, numSitesRequested);
-        System.out.println("[MASTER] Loaded " + allSites.size() + " sites.");
+        // A binary file holding enough sites is read by every rank on its own; anything else
+        // is loaded (sampled or topped up) on the master and scattered
+        boolean rankLocal = allData == null && canReadLocally(sitesFile, numSitesRequested);
+        bcast(new int[]{rankLocal ? 1 : 0}, 0, 1);
 
-        List<double[]> dataPoints = extractCoordinates(allSites);
-
-        // Split data into chunks for workers
-        List<List<double[]>> chunks = splitData(dataPoints, size - 1);
+        SiteDataset shard;
+        if (rankLocal) {
+            log("[MASTER] Every rank maps its own share of " + sitesFile);
+            shard = readLocalShard(sitesFile, numSitesRequested);
+        } else {
+            if (allData == null) {
+                log("[MASTER] Loading " + numSitesRequested + " sites...");
+                allData = SiteLoader.loadDataset(sitesFile, numSitesRequested); // JSON or binary
+                log("[MASTER] Loaded " + allData.size + " sites.");
+            }
 
-        System.out.println("[MASTER] Sending data chunks to workers...");
-        for (int worker = 1; worker < size; worker++) {
-            Object[] sendBuf = new Object[]{chunks.get(worker - 1)};
-            MPI.COMM_WORLD.Send(sendBuf, 0, 1, MPI.OBJECT, worker, 0);
+            // Scatter contiguous coordinate ranges straight out of the columns
+            log("[MASTER] Scattering data chunks...");
+            shard = scatter(allData);
         }
 
-        // Initialize centroids randomly
-        List<double[]> centroids = initializeRandomCentroids(dataPoints, k);
-        System.out.println("[MASTER] Initial centroids: " + Arrays.deepToString(centroids.toArray()));
-
-        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-            System.out.println("[MASTER] Iteration " + (iter + 1));
-
-            // Broadcast centroids to all workers
-            Object[] centroidArray = centroids.toArray();
-            MPI.COMM_WORLD.Bcast(centroidArray, 0, k, MPI.OBJECT, 0);
-
-            // Prepare accumulator for partial results
-            double[][] globalSums = new double[k][2];
-            int[] globalCounts = new int[k];
+        // Seed the initial centroids, across all ranks for k-means||
+        boolean parallelSeeding = seeding == SeedingStrategy.KMEANS_PARALLEL && initialCentroids == null;
+        bcast(new int[]{parallelSeeding ? 1 : 0}, 0, 1);
+        double[] centroids;
+        if (parallelSeeding) {
+            centroids = seedKMeansParallel(shard, k);
+        } else if (initialCentroids != null) {
+            centroids = initialCentroids.clone(); // warm start
+            bcast(centroids, 0, k * 2);
+        } else {
+            // With rank-local loading the master only holds its own shard
+            centroids = CentroidSeeding.seed(allData != null ? allData : shard, k, seeding, newRandom());
+            bcast(centroids, 0, k * 2);
+        }
+        log("[MASTER] Initial centroids: " + Arrays.toString(centroids));
 
-            // Receive partial results from workers
-            for (int worker = 1; worker < size; worker++) {
-                Object[] recvBuf = new Object[1];
-                MPI.COMM_WORLD.Recv(recvBuf, 0, 1, MPI.OBJECT, worker, 1);
+        Convergence run = iterate(shard, centroids, k);
+        log("[MASTER] " + (run.shift > tolerance ? "Stopped at the iteration limit" : "Converged")
+                + " after " + run.cycles + " iterations (final shift " + run.shift + ").");
 
-                PartialResult pr = (PartialResult) recvBuf[0];
-                mergePartialResults(pr, globalSums, globalCounts);
-            }
+        // Collect the last round's assignments, in input order
+        run.assignment = gatherAssignments(run.assignment);
+        run.centroids = centroids;
 
-            // Update centroids
-            centroids = recomputeCentroids(globalSums, globalCounts);
-        }
+        long endTime = System.currentTimeMillis(); // ✅ End runtime
+        run.durationMillis = endTime - startTime;
+        printWireBytes("[MASTER]");
+        return run;
+    }
 
+    private static void saveResult(Convergence run, int k) throws IOException {
         System.out.println("[MASTER] Final centroids:");
         List<ClusterCenter> clusterCenters = new ArrayList<>();
-        for (int i = 0; i < centroids.size(); i++) {
-            double[] c = centroids.get(i);
-            System.out.println("Cluster " + i + ": " + Arrays.toString(c));
-            clusterCenters.add(new ClusterCenter(c[0], c[1])); // ✅ Convert to ClusterCenter
+        for (int c = 0; c < k; c++) {
+            System.out.println("Cluster " + c + ": [" + run.centroids[c * 2] + ", " + run.centroids[c * 2 + 1] + "]");
+            clusterCenters.add(new ClusterCenter(run.centroids[c * 2], run.centroids[c * 2 + 1])); // ✅ Convert to ClusterCenter
         }
 
-        long endTime = System.currentTimeMillis(); // ✅ End runtime
-        long durationMillis = endTime - startTime;
-        int cycles = MAX_ITERATIONS;
-
         // ✅ Wrap result
-        ClusteringResult result = new ClusteringResult(clusterCenters, cycles, durationMillis);
+        ClusteringResult result = new ClusteringResult(clusterCenters, run.cycles, run.shift, run.durationMillis);
 
         // ✅ Ensure results folder exists
         File resultsDir = new File("results");
@@ -117,140 +194,398 @@ public class DistributedKMeansMPJ {
             resultsDir.mkdirs();
         }
 
-        // ✅ Save to JSON for App.java
-        ResultSaver.saveResult(result, "results/distributed_result.json");
-        System.out.println("[MASTER] ✅ Distributed result saved to results/distributed_result.json");
+        // ✅ Save to JSON for App.java, with the per-site assignments in a binary sidecar
+        ResultSaver.saveResult(result, RESULT_PATH);
+        new AssignmentSidecar(k, run.centroids, run.assignment).write(ASSIGNMENTS_PATH);
+        run.metrics.writeCsv(METRICS_PATH);
+        System.out.println("[MASTER] ✅ Distributed result saved to " + RESULT_PATH + " and " + ASSIGNMENTS_PATH
+                + " (per-iteration metrics in " + METRICS_PATH + ")");
     }
 
     // --- WORKER ---
-    private static void runWorker(int k) throws Exception {
-        int rank = MPI.COMM_WORLD.Rank();
-
-        // ✅ Receive chunk of data
-        Object[] recvBuf = new Object[1];
-        MPI.COMM_WORLD.Recv(recvBuf, 0, 1, MPI.OBJECT, 0, 0);
-
-        @SuppressWarnings("unchecked")
-        List<double[]> localData = (List<double[]>) recvBuf[0];
-
-        System.out.println("[WORKER " + rank + "] Received " + localData.size() + " points.");
-
-        // ✅ Iterate each step
-        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-
-            // ✅ Receive centroids
-            Object[] centroidArray = new Object[k];
-            MPI.COMM_WORLD.Bcast(centroidArray, 0, k, MPI.OBJECT, 0);
-
-            // Convert to a List<double[]>
-            List<double[]> centroids = new ArrayList<>(k);
-            for (Object obj : centroidArray) {
-                if (obj != null) {
-                    centroids.add((double[]) obj);
-                } else {
-                    System.err.println("[WORKER " + rank + "] Warning: received null centroid");
-                    centroids.add(new double[]{0.0, 0.0}); // fallback
-                }
+    private void runWorker(String sitesFile, int k, int numSitesRequested) {
+
+        // ✅ Read our own share of the file, or receive it from the master
+        int[] rankLocal = new int[1];
+        bcast(rankLocal, 0, 1);
+        SiteDataset shard = rankLocal[0] == 1
+                ? readLocalShard(sitesFile, numSitesRequested)
+                : scatter(null);
+        log("[WORKER " + rank + "] " + (rankLocal[0] == 1 ? "Read " : "Received ")
+                + shard.size + " points.");
+
+        // ✅ Take part in seeding if the master runs k-means||
+        int[] parallelSeeding = new int[1];
+        bcast(parallelSeeding, 0, 1);
+        double[] centroids = new double[k * 2];
+        if (parallelSeeding[0] == 1) {
+            centroids = seedKMeansParallel(shard, k);
+        } else {
+            bcast(centroids, 0, k * 2);
+        }
+
+        Convergence run = iterate(shard, centroids, k);
+        gatherAssignments(run.assignment);
+
+        log("[WORKER " + rank + "] Finished all " + run.cycles + " iterations.");
+        printWireBytes("[WORKER " + rank + "]");
+    }
+
+    // --- Lloyd iterations, identical on every rank ---
+    // Updates centroids in place; in geodesic mode the ranks iterate on unit vectors and
+    // convert back to lat/lon at the end
+    private Convergence iterate(SiteDataset shard, double[] centroids, int k) {
+        boolean geodesic = distance == DistanceMode.GEODESIC;
+        GeodesicKernel.UnitVectors vectors = geodesic ? GeodesicKernel.UnitVectors.of(shard) : null;
+        double[] centers = geodesic ? GeodesicKernel.fromLatLon(centroids, k) : centroids;
+        int dims = geodesic ? 3 : 2;
+
+        double[] sums = new double[k * dims];
+        double[] weights = new double[k];
+        // k x dims sums, k weights, then the changed / inertia / distance counters, reduced in one call
+        int reduced = k * (dims + 1) + STAT_COUNT;
+        double[] partial = new double[reduced];
+        double[] global = new double[reduced];
+        AssignmentStats stats = new AssignmentStats();
+
+        Convergence run = new Convergence();
+        run.assignment = new int[shard.size];
+        int[] assignment = run.assignment;
+        Arrays.fill(assignment, -1); // so the first iteration counts every site as changed
+        // Per iteration: this rank's assign, update and Allreduce times, and the global counters
+        int slots = Math.max(1, maxIterations); // the loop always runs once
+        long[] assignNanos = new long[slots];
+        long[] updateNanos = new long[slots];
+        long[] commNanos = new long[slots];
+        double[] iterationStats = new double[slots * STAT_COUNT];
+        double[] shifts = new double[slots];
+        // The master's per-iteration events are committed once the rank times are collected
+        IterationEvent[] iterationEvents = rank == 0 ? new IterationEvent[slots] : null;
+        boolean running = true;
+
+        while (running) {
+            run.cycles++;
+            if (rank == 0) log("[MASTER] Iteration " + run.cycles);
+            int iter = run.cycles - 1;
+
+            RankIterationEvent rankEvent = RankIterationEvent.start();
+            if (iterationEvents != null) iterationEvents[iter] = IterationEvent.start();
+            long assignStart = System.nanoTime();
+            Arrays.fill(sums, 0);
+            Arrays.fill(weights, 0);
+            stats.reset();
+            if (geodesic) {
+                GeodesicKernel.assignRange(vectors, 0, shard.size, centers, k, assignment, sums, weights, stats);
+            } else {
+                ClusterKernels.assignRange(shard, 0, shard.size, centers, k, assignment, sums, weights, stats);
             }
 
-            // ✅ Compute partial result
-            PartialResult pr = computePartialResult(localData, centroids);
+            System.arraycopy(sums, 0, partial, 0, k * dims);
+            System.arraycopy(weights, 0, partial, k * dims, k);
+            partial[k * (dims + 1)] = stats.changed;
+            partial[k * (dims + 1) + 1] = stats.inertia;
+            partial[k * (dims + 1) + 2] = stats.distanceEvaluations;
+            long commStart = System.nanoTime();
+            allreduceSum(partial, global, reduced);
+            long commEnd = System.nanoTime();
+            System.arraycopy(global, 0, sums, 0, k * dims);
+            System.arraycopy(global, k * dims, weights, 0, k);
+            System.arraycopy(global, k * (dims + 1), iterationStats, iter * STAT_COUNT, STAT_COUNT);
+
+            // Every rank applies the update to its copy of the totals
+            run.shift = geodesic
+                    ? GeodesicKernel.updateCentroids(centers, sums, weights, k)
+                    : ClusterKernels.updateCentroids(centers, sums, weights, k);
+            long updateEnd = System.nanoTime();
+
+            // MPJ does not promise bit-identical Allreduce results on every rank, so one rank
+            // deciding differently would leave the others waiting in the next collective;
+            // rank 0 decides for all
+            int[] proceed = {run.shift > tolerance && run.cycles < maxIterations ? 1 : 0};
+            bcast(proceed, 0, 1);
+            running = proceed[0] == 1;
+
+            assignNanos[iter] = commStart - assignStart;
+            updateNanos[iter] = updateEnd - commEnd;
+            commNanos[iter] = (commEnd - commStart) + (System.nanoTime() - updateEnd);
+            shifts[iter] = run.shift;
+            if (iterationEvents != null) iterationEvents[iter].end();
+            rankEvent.emit(rank, run.cycles, assignNanos[iter] + updateNanos[iter], commNanos[iter]);
+        }
+        if (geodesic) System.arraycopy(GeodesicKernel.toLatLon(centers, k), 0, centroids, 0, k * 2);
 
-            // ✅ Send partial result back
-            MPI.COMM_WORLD.Send(new Object[]{pr}, 0, 1, MPI.OBJECT, 0, 1);
+        run.metrics = collectMetrics(run.cycles, assignNanos, updateNanos, commNanos, iterationStats, shifts,
+                iterationEvents);
+        return run;
+    }
 
-            System.out.println("[WORKER " + rank + "] Iteration " + (iter + 1) + " done.");
+    // Shares every rank's per-iteration times in one Allgatherv after the loop, so measuring
+    // adds no message to the iterations themselves; returns the metrics on the master only
+    private ClusteringMetrics collectMetrics(int cycles, long[] assignNanos, long[] updateNanos, long[] commNanos,
+                                             double[] iterationStats, double[] shifts,
+                                             IterationEvent[] iterationEvents) {
+        double[] local = new double[cycles * 2];
+        for (int i = 0; i < cycles; i++) {
+            local[i] = assignNanos[i] + updateNanos[i];
+            local[cycles + i] = commNanos[i];
+        }
+        int[] counts = new int[size];
+        int[] displs = new int[size];
+        for (int r = 0; r < size; r++) {
+            counts[r] = cycles * 2;
+            displs[r] = r * cycles * 2;
         }
+        double[] all = new double[size * cycles * 2];
+        allgatherv(local, all, counts, displs);
+        if (rank != 0) return null;
+
+        ClusteringMetrics metrics = new ClusteringMetrics("DistributedKMeansMPJ");
+        for (int i = 0; i < cycles; i++) {
+            IterationMetrics m = new IterationMetrics();
+            m.iteration = i + 1;
+            m.assignNanos = assignNanos[i]; // the master's own; the per-rank columns show the spread
+            m.updateNanos = updateNanos[i];
+            m.changed = (long) iterationStats[i * STAT_COUNT];
+            m.inertia = iterationStats[i * STAT_COUNT + 1];
+            m.distanceEvaluations = (long) iterationStats[i * STAT_COUNT + 2];
+            m.shift = shifts[i];
+            m.rankComputeNanos = new long[size];
+            m.rankCommunicationNanos = new long[size];
+            for (int r = 0; r < size; r++) {
+                m.rankComputeNanos[r] = (long) all[r * cycles * 2 + i];
+                m.rankCommunicationNanos[r] = (long) all[r * cycles * 2 + cycles + i];
+            }
+            metrics.record(m, iterationEvents[i]);
+        }
+        return metrics;
+    }
 
-        System.out.println("[WORKER " + rank + "] Finished all iterations.");
+    private static class Convergence {
+        int cycles = 0;
+        double shift = 0;
+        int[] assignment;   // this shard's clusters from the last round; all of them on the master
+        double[] centroids; // master only, once finished
+        long durationMillis;
+        ClusteringMetrics metrics; // master only
     }
 
-    // --- Utility Methods ---
-    private static List<double[]> extractCoordinates(List<AccumulationSite> sites) {
-        List<double[]> coords = new ArrayList<>();
-        for (AccumulationSite s : sites) {
-            coords.add(new double[]{s.latitude, s.longitude});
+    // Concatenates every rank's assignments on rank 0 (shards are consecutive partition
+    // ranges, so rank order is input order); returns null elsewhere
+    private int[] gatherAssignments(int[] local) {
+        int[] counts = new int[size];
+        gather(new int[]{local.length}, counts);
+
+        int[] displs = new int[size];
+        int total = 0;
+        for (int r = 0; r < size; r++) {
+            displs[r] = total;
+            total += counts[r];
         }
-        return coords;
+        int[] all = rank == 0 ? new int[total] : new int[0];
+        gatherv(local, all, counts, displs);
+        return rank == 0 ? all : null;
     }
 
-    private static List<List<double[]>> splitData(List<double[]> data, int numChunks) {
-        List<List<double[]>> chunks = new ArrayList<>();
-        int chunkSize = (int) Math.ceil((double) data.size() / numChunks);
+    // --- Data distribution ---
+    // Both paths give rank r the same SitePartition range of the requested sites
 
-        for (int i = 0; i < data.size(); i += chunkSize) {
-            // ✅ Convert subList into a real ArrayList (serializable)
-            List<double[]> chunk = new ArrayList<>(data.subList(i, Math.min(i + chunkSize, data.size())));
-            chunks.add(chunk);
+    private static boolean canReadLocally(String sitesFile, int numSitesRequested) {
+        if (!SiteBinaryFormat.isBinary(sitesFile)) return false;
+        try {
+            return new MappedSiteStream(sitesFile).size >= numSitesRequested;
+        } catch (Exception e) {
+            return false;
         }
-        return chunks;
     }
 
-    private static List<double[]> initializeRandomCentroids(List<double[]> points, int k) {
-        List<double[]> shuffled = new ArrayList<>(points);
-        Collections.shuffle(shuffled, new Random());
-        return new ArrayList<>(shuffled.subList(0, k));
+    private SiteDataset readLocalShard(String sitesFile, int numSitesRequested) {
+        try {
+            return SitePartition.read(new MappedSiteStream(sitesFile), numSitesRequested, rank, size);
+        } catch (IOException e) {
+            throw new RuntimeException("Rank " + rank + " could not read " + sitesFile, e);
+        }
     }
 
-    private static PartialResult computePartialResult(List<double[]> data, List<double[]> centroids) {
-        int k = centroids.size();
-        double[][] sums = new double[k][2];
-        int[] counts = new int[k];
+    // allData is only read on rank 0; a weight column travels with the coordinates
+    private SiteDataset scatter(SiteDataset allData) {
+        int[] n = {allData != null ? allData.size : 0, allData != null && allData.weight != null ? 1 : 0};
+        bcast(n, 0, 2);
 
-        for (double[] point : data) {
-            int cluster = nearestCluster(point, centroids);
-            sums[cluster][0] += point[0];
-            sums[cluster][1] += point[1];
-            counts[cluster]++;
+        int[] counts = new int[size];
+        int[] displs = new int[size];
+        for (int r = 0; r < size; r++) {
+            displs[r] = SitePartition.start(n[0], r, size);
+            counts[r] = SitePartition.size(n[0], r, size);
         }
-        return new PartialResult(sums, counts);
-    }
 
-    private static int nearestCluster(double[] p, List<double[]> centroids) {
-        int best = 0;
-        double bestDist = Double.MAX_VALUE;
+        double[] lat = new double[counts[rank]];
+        double[] lon = new double[counts[rank]];
+        scatterv(allData != null ? allData.lat : new double[0], counts, displs, lat);
+        scatterv(allData != null ? allData.lon : new double[0], counts, displs, lon);
+        double[] weight = null;
+        if (n[1] == 1) {
+            weight = new double[counts[rank]];
+            scatterv(allData != null ? allData.weight : new double[0], counts, displs, weight);
+        }
+        return new SiteDataset(lat, lon, new double[counts[rank]], weight);
+    }
 
-        for (int i = 0; i < centroids.size(); i++) {
-            double d = Math.pow(p[0] - centroids.get(i)[0], 2) + Math.pow(p[1] - centroids.get(i)[1], 2);
-            if (d < bestDist) {
-                bestDist = d;
-                best = i;
+    // --- k-means|| seeding ---
+    // All ranks run the rounds on their own shard: the round cost is an Allreduce and the
+    // oversampled points are Allgathered, so every rank holds the same candidate list.
+    // Finally the per-shard candidate weights are summed and rank 0 reduces the weighted
+    // candidates to k centers, which it broadcasts.
+    private double[] seedKMeansParallel(SiteDataset shard, int k) {
+        Random rand = newRandom();
+        double[] minDist = new double[shard.size];
+        Arrays.fill(minDist, Double.MAX_VALUE);
+
+        // First candidate: a random site of the whole input. Any shard may be empty (fewer sites
+        // than ranks), so rank 0 draws a global index and the rank holding it contributes the site.
+        int[] shardSizes = new int[size];
+        allgather(new int[]{shard.size}, shardSizes);
+        int total = 0;
+        for (int shardSize : shardSizes) total += shardSize;
+        if (total == 0) throw new IllegalArgumentException("k-means|| seeding needs at least one site");
+        int[] first = new int[1];
+        if (rank == 0) first[0] = rand.nextInt(total);
+        bcast(first, 0, 1);
+        int offset = 0;
+        for (int r = 0; r < rank; r++) offset += shardSizes[r];
+        double[] own = new double[2];
+        if (first[0] >= offset && first[0] < offset + shard.size) {
+            own[0] = shard.lat[first[0] - offset];
+            own[1] = shard.lon[first[0] - offset];
+        }
+        double[] candidates = new double[2];
+        allreduceSum(own, candidates, 2); // zeros from every other rank
+        int count = 1;
+        int newFrom = 0;
+
+        for (int round = 0; round < CentroidSeeding.PARALLEL_ROUNDS; round++) {
+            double[] cost = {CentroidSeeding.updateMinDistances(shard, minDist, candidates, newFrom, count)};
+            double[] totalCost = new double[1];
+            allreduceSum(cost, totalCost, 1);
+            if (totalCost[0] == 0) break; // every point already coincides with a candidate
+
+            double[] sampled = CentroidSeeding.sampleOversampled(shard, minDist, 2.0 * k, totalCost[0], rand);
+            int[] sampledCounts = new int[size];
+            allgather(new int[]{sampled.length}, sampledCounts);
+
+            int[] displs = new int[size];
+            int added = 0;
+            for (int r = 0; r < size; r++) {
+                displs[r] = count * 2 + added;
+                added += sampledCounts[r];
             }
+            candidates = Arrays.copyOf(candidates, count * 2 + added);
+            allgatherv(sampled, candidates, sampledCounts, displs);
+
+            newFrom = count;
+            count += added / 2;
         }
-        return best;
+
+        double[] partialWeights = CentroidSeeding.candidateWeights(shard, candidates, count);
+        double[] weights = new double[count];
+        allreduceSum(partialWeights, weights, count);
+
+        double[] centroids = new double[k * 2];
+        if (rank == 0) {
+            log("[MASTER] k-means|| reduced " + count + " candidates to " + k + " centers.");
+            centroids = CentroidSeeding.weightedKMeansPlusPlus(candidates, weights, count, k, rand);
+        }
+        bcast(centroids, 0, k * 2);
+        return centroids;
     }
 
-    private static void mergePartialResults(PartialResult pr, double[][] globalSums, int[] globalCounts) {
-        for (int i = 0; i < pr.counts.length; i++) {
-            globalSums[i][0] += pr.sums[i][0];
-            globalSums[i][1] += pr.sums[i][1];
-            globalCounts[i] += pr.counts[i];
+    // Each rank draws its own stream; a fixed seed makes the whole run repeatable
+    private Random newRandom() {
+        return new Random((seed != null ? seed : System.nanoTime()) + rank);
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    // --- Wire ---
+    // Every message is a flat double or int buffer; these wrappers count the payload bytes
+    // this rank puts on or takes off the wire. A broadcast or scatter root sends one copy
+    // per other rank; for Allreduce a rank contributes its buffer and gets the result.
+    private long bytesSent = 0;
+    private long bytesReceived = 0;
+
+    // Rooted at rank 0
+    private void bcast(double[] buf, int offset, int count) {
+        comm.bcast(buf, offset, count);
+        countBroadcast((long) count * Double.BYTES);
+    }
+
+    private void bcast(int[] buf, int offset, int count) {
+        comm.bcast(buf, offset, count);
+        countBroadcast((long) count * Integer.BYTES);
+    }
+
+    private void countBroadcast(long bytes) {
+        if (rank == 0) {
+            bytesSent += bytes * (size - 1);
+        } else {
+            bytesReceived += bytes;
         }
     }
 
-    private static List<double[]> recomputeCentroids(double[][] sums, int[] counts) {
-        List<double[]> newCentroids = new ArrayList<>();
-        for (int i = 0; i < sums.length; i++) {
-            if (counts[i] > 0) {
-                newCentroids.add(new double[]{
-                        sums[i][0] / counts[i],
-                        sums[i][1] / counts[i]
-                });
-            } else {
-                newCentroids.add(new double[]{sums[i][0], sums[i][1]}); // unchanged if empty
-            }
+    private void allreduceSum(double[] send, double[] recv, int count) {
+        comm.allreduceSum(send, recv, count);
+        bytesSent += (long) count * Double.BYTES;
+        bytesReceived += (long) count * Double.BYTES;
+    }
+
+    private void allgather(int[] send, int[] recv) {
+        comm.allgather(send, recv);
+        bytesSent += Integer.BYTES;
+        bytesReceived += (long) (size - 1) * Integer.BYTES;
+    }
+
+    // Rooted at rank 0; recv is only written there
+    private void gather(int[] send, int[] recv) {
+        comm.gather(send, recv);
+        if (rank == 0) {
+            bytesReceived += (long) (recv.length - 1) * Integer.BYTES;
+        } else {
+            bytesSent += Integer.BYTES;
+        }
+    }
+
+    private void gatherv(int[] send, int[] recv, int[] counts, int[] displs) {
+        comm.gatherv(send, recv, counts, displs);
+        if (rank == 0) {
+            bytesReceived += (long) (recv.length - send.length) * Integer.BYTES;
+        } else {
+            bytesSent += (long) send.length * Integer.BYTES;
         }
-        return newCentroids;
     }
 
-    // --- Partial result container ---
-    public static class PartialResult implements Serializable {
-        double[][] sums;
-        int[] counts;
+    // Each rank's send buffer lands at recv[displs[rank]]
+    private void allgatherv(double[] send, double[] recv, int[] counts, int[] displs) {
+        comm.allgatherv(send, recv, counts, displs);
+        long total = 0;
+        for (int c : counts) total += c;
+        bytesSent += (long) counts[rank] * Double.BYTES;
+        bytesReceived += (total - counts[rank]) * Double.BYTES;
+    }
 
-        public PartialResult(double[][] s, int[] c) {
-            sums = s;
-            counts = c;
+    // Rooted at rank 0; send is only read there
+    private void scatterv(double[] send, int[] counts, int[] displs, double[] recv) {
+        comm.scatterv(send, counts, displs, recv);
+        if (rank == 0) {
+            long total = 0;
+            for (int c : counts) total += c;
+            bytesSent += (total - counts[0]) * Double.BYTES;
+        } else {
+            bytesReceived += (long) counts[rank] * Double.BYTES;
         }
     }
+
+    private void printWireBytes(String who) {
+        log(who + " Wire bytes: sent " + bytesSent + ", received " + bytesReceived);
+    }
 }
@@ -0,0 +1,199 @@
+package org.kmeans.utils;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Great-circle k-means without trig in the hot loop. Each site is turned into a 3-D unit
+// vector once; on the unit sphere the nearest center by arc length is the one with the
+// largest dot product, and the point minimizing the summed squared chord lengths of a
+// cluster is its (weighted) vector sum scaled back onto the sphere. Centers are flat
+// row-major k x 3 matrices: [x0, y0, z0, x1, y1, z1, ...].
+public class GeodesicKernel {
+
+    private static final int CONVERT_CHUNK = 1 << 16;
+
+    // x, y, z columns of the sites, sharing the dataset's weights
+    public static class UnitVectors {
+        public final double[] x;
+        public final double[] y;
+        public final double[] z;
+        public final double[] weight;
+        public final int size;
+
+        private UnitVectors(SiteDataset data) {
+            this.size = data.size;
+            this.x = new double[size];
+            this.y = new double[size];
+            this.z = new double[size];
+            this.weight = data.weight;
+        }
+
+        public static UnitVectors of(SiteDataset data) {
+            UnitVectors vectors = new UnitVectors(data);
+            vectors.fill(data, 0, data.size);
+            return vectors;
+        }
+
+        // Converts in chunks on the pool; the trig calls are the only cost that scales with n
+        public static UnitVectors of(SiteDataset data, ForkJoinPool pool) {
+            UnitVectors vectors = new UnitVectors(data);
+            int chunks = (data.size + CONVERT_CHUNK - 1) / CONVERT_CHUNK;
+            ClusterPool.forEach(pool, chunks, chunk -> vectors.fill(data, chunk * CONVERT_CHUNK,
+                    Math.min(data.size, (chunk + 1) * CONVERT_CHUNK)));
+            return vectors;
+        }
+
+        private void fill(SiteDataset data, int from, int to) {
+            for (int i = from; i < to; i++) {
+                double lat = Math.toRadians(data.lat[i]);
+                double lon = Math.toRadians(data.lon[i]);
+                double cosLat = Math.cos(lat);
+                x[i] = cosLat * Math.cos(lon);
+                y[i] = cosLat * Math.sin(lon);
+                z[i] = Math.sin(lat);
+            }
+        }
+    }
+
+    // Flat k x 2 lat/lon centroids (e.g. from CentroidSeeding) to k x 3 unit vectors
+    public static double[] fromLatLon(double[] centroids, int k) {
+        double[] centers = new double[k * 3];
+        for (int c = 0; c < k; c++) {
+            double lat = Math.toRadians(centroids[c * 2]);
+            double lon = Math.toRadians(centroids[c * 2 + 1]);
+            centers[c * 3] = Math.cos(lat) * Math.cos(lon);
+            centers[c * 3 + 1] = Math.cos(lat) * Math.sin(lon);
+            centers[c * 3 + 2] = Math.sin(lat);
+        }
+        return centers;
+    }
+
+    // Back to flat k x 2 lat/lon degrees for ClusteringResult
+    public static double[] toLatLon(double[] centers, int k) {
+        double[] centroids = new double[k * 2];
+        for (int c = 0; c < k; c++) {
+            double x = centers[c * 3], y = centers[c * 3 + 1], z = centers[c * 3 + 2];
+            centroids[c * 2] = Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y)));
+            centroids[c * 2 + 1] = Math.toDegrees(Math.atan2(y, x));
+        }
+        return centroids;
+    }
+
+    // Centers transposed to x/y/z columns and padded to a whole number of vector lanes, as in
+    // DistanceKernel.Centers; padding is NaN so its dot product never wins
+    public static class Centers {
+        public final int k;
+        public final int padded;
+        final double[] x;
+        final double[] y;
+        final double[] z;
+
+        private Centers(int k, int padded) {
+            this.k = k;
+            this.padded = padded;
+            this.x = new double[padded];
+            this.y = new double[padded];
+            this.z = new double[padded];
+        }
+    }
+
+    public static Centers prepare(double[] centers, int k) {
+        int lanes = DistanceKernel.VECTORIZED ? VectorDistanceKernel.LANES : 1;
+        Centers prepared = new Centers(k, (k + lanes - 1) / lanes * lanes);
+        for (int c = 0; c < k; c++) {
+            prepared.x[c] = centers[c * 3];
+            prepared.y[c] = centers[c * 3 + 1];
+            prepared.z[c] = centers[c * 3 + 2];
+        }
+        for (int c = k; c < prepared.padded; c++) {
+            prepared.x[c] = Double.NaN;
+            prepared.y[c] = Double.NaN;
+            prepared.z[c] = Double.NaN;
+        }
+        return prepared;
+    }
+
+    // Index of the center with the largest dot product, i.e. the nearest along the sphere
+    // (lowest index wins ties)
+    public static int nearest(double x, double y, double z, Centers centers) {
+        if (DistanceKernel.VECTORIZED) {
+            return VectorDistanceKernel.largestDot(x, y, z, centers.x, centers.y, centers.z, centers.padded);
+        }
+        int best = 0;
+        double bestDot = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < centers.k; c++) {
+            double dot = x * centers.x[c] + y * centers.y[c] + z * centers.z[c];
+            if (dot > bestDot) {
+                bestDot = dot;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    // Same contract as ClusterKernels.assignRange, with k x 3 vector sums
+    public static void assignRange(UnitVectors points, int from, int to, double[] centers, int k,
+                                   int[] assignment, double[] sums, double[] weights) {
+        assignRange(points, from, to, centers, k, assignment, sums, weights, null);
+    }
+
+    // Same, also counting into stats when it is not null; inertia is the squared chord length
+    // 2 - 2 * dot, the quantity the center update minimizes
+    public static void assignRange(UnitVectors points, int from, int to, double[] centers, int k,
+                                   int[] assignment, double[] sums, double[] weights, AssignmentStats stats) {
+        assignRange(points, from, to, centers, prepare(centers, k), assignment, sums, weights, stats);
+    }
+
+    // Same, with centers already prepared, shared by the leaves of a parallel pass
+    public static void assignRange(UnitVectors points, int from, int to, double[] centers, Centers prepared,
+                                   int[] assignment, double[] sums, double[] weights, AssignmentStats stats) {
+        double[] px = points.x, py = points.y, pz = points.z;
+        double[] weight = points.weight;
+        int k = prepared.k;
+        for (int i = from; i < to; i++) {
+            double x = px[i], y = py[i], z = pz[i];
+            int best = nearest(x, y, z, prepared);
+            double w = weight == null ? 1 : weight[i];
+            if (stats != null) {
+                if (assignment[i] != best) stats.changed++;
+                double dot = x * centers[best * 3] + y * centers[best * 3 + 1] + z * centers[best * 3 + 2];
+                stats.inertia += w * Math.max(0, 2 - 2 * dot);
+            }
+            assignment[i] = best;
+            sums[best * 3] += w * x;
+            sums[best * 3 + 1] += w * y;
+            sums[best * 3 + 2] += w * z;
+            weights[best] += w;
+        }
+        if (stats != null) stats.distanceEvaluations += (long) (to - from) * k;
+    }
+
+    // Moves each center with weight to its normalized vector sum; returns the largest move as
+    // an arc in degrees, so options.tolerance means the same as in planar mode
+    public static double updateCentroids(double[] centers, double[] sums, double[] weights, int k) {
+        double maxShift = 0;
+        for (int c = 0; c < k; c++) {
+            double x = sums[c * 3], y = sums[c * 3 + 1], z = sums[c * 3 + 2];
+            double norm = Math.sqrt(x * x + y * y + z * z);
+            // Empty, or the sites cancel out exactly (spread evenly round the globe): stay put
+            if (weights[c] == 0 || norm == 0) continue;
+
+            x /= norm;
+            y /= norm;
+            z /= norm;
+            maxShift = Math.max(maxShift, arcDegrees(centers[c * 3], centers[c * 3 + 1], centers[c * 3 + 2], x, y, z));
+            centers[c * 3] = x;
+            centers[c * 3 + 1] = y;
+            centers[c * 3 + 2] = z;
+        }
+        return maxShift;
+    }
+
+    // Angle between two unit vectors; atan2 stays accurate for tiny and near-antipodal angles
+    public static double arcDegrees(double ax, double ay, double az, double bx, double by, double bz) {
+        double cx = ay * bz - az * by;
+        double cy = az * bx - ax * bz;
+        double cz = ax * by - ay * bx;
+        double cross = Math.sqrt(cx * cx + cy * cy + cz * cz);
+        return Math.toDegrees(Math.atan2(cross, ax * bx + ay * by + az * bz));
+    }
+}
@@ -0,0 +1,161 @@
+package org.kmeans.utils;
+
+// Hamerly's triangle-inequality pruning for the assignment step.
+// Each site keeps an upper bound on the distance to its own center and a lower bound on
+// the distance to every other center; a site whose upper bound is below
+// max(lower bound, half the distance from its center to the nearest other center)
+// cannot change cluster and skips the k-center scan.
+// Only two bounds per site are kept (Elkan's k lower bounds per site do not fit in
+// memory at a few million sites and k = 1000).
+public class HamerlyAssigner {
+
+    // Bounds must beat the comparison by this much (in degrees) before a site is skipped,
+    // so rounding in the bound updates can never hide a genuine change of cluster
+    private static final double SLACK = 1e-9;
+
+    private final int k;
+    private final double[] upper;
+    private final double[] lower;
+    private final double[] previous;
+    private final double[] shift;
+    private final double[] halfSeparation;
+    private DistanceKernel.Centers centers;
+    private double maxShift;
+    private double secondMaxShift;
+    private int maxShiftIndex = -1;
+    private boolean initialized = false;
+    private boolean primed = false;
+
+    public HamerlyAssigner(int n, int k) {
+        this.k = k;
+        this.upper = new double[n];
+        this.lower = new double[n];
+        this.previous = new double[k * 2];
+        this.shift = new double[k];
+        this.halfSeparation = new double[k];
+    }
+
+    // Call once per iteration, single-threaded, before any assignRange call
+    public void prepare(double[] centroids) {
+        initialized = primed;
+        if (initialized) {
+            maxShift = 0;
+            secondMaxShift = 0;
+            maxShiftIndex = -1;
+            for (int c = 0; c < k; c++) {
+                double dx = centroids[c * 2] - previous[c * 2];
+                double dy = centroids[c * 2 + 1] - previous[c * 2 + 1];
+                double s = Math.sqrt(dx * dx + dy * dy);
+                shift[c] = s;
+                if (s > maxShift) {
+                    secondMaxShift = maxShift;
+                    maxShift = s;
+                    maxShiftIndex = c;
+                } else if (s > secondMaxShift) {
+                    secondMaxShift = s;
+                }
+            }
+        }
+        System.arraycopy(centroids, 0, previous, 0, k * 2);
+        primed = true;
+        centers = DistanceKernel.prepare(centroids, k);
+
+        for (int c = 0; c < k; c++) {
+            double min = Double.MAX_VALUE;
+            for (int o = 0; o < k; o++) {
+                if (o == c) continue;
+                double dx = centroids[c * 2] - centroids[o * 2];
+                double dy = centroids[c * 2 + 1] - centroids[o * 2 + 1];
+                double d = dx * dx + dy * dy;
+                if (d < min) min = d;
+            }
+            halfSeparation[c] = 0.5 * Math.sqrt(min);
+        }
+    }
+
+    // Same contract as ClusterKernels.assignRange; ranges may run concurrently
+    public void assignRange(SiteDataset data, int from, int to, double[] centroids,
+                            int[] assignment, double[] sums, double[] weights) {
+        assignRange(data, from, to, centroids, assignment, sums, weights, null);
+    }
+
+    // Same, also counting into stats when it is not null; a skipped site prunes all k distances
+    public void assignRange(SiteDataset data, int from, int to, double[] centroids,
+                            int[] assignment, double[] sums, double[] weights, AssignmentStats stats) {
+        long evaluations = 0;
+        long skipped = 0;
+        double[] lat = data.lat;
+        double[] lon = data.lon;
+        double[] weight = data.weight;
+        double[] scratch = centers.newScratch();
+
+        for (int i = from; i < to; i++) {
+            double x = lat[i];
+            double y = lon[i];
+            int a;
+
+            if (!initialized) {
+                a = fullScan(i, x, y, scratch);
+                evaluations += k;
+            } else {
+                a = assignment[i];
+                double u = upper[i] + shift[a];
+                double l = lower[i] - (a == maxShiftIndex ? secondMaxShift : maxShift);
+                double m = Math.max(halfSeparation[a], l);
+
+                if (u + SLACK >= m) {
+                    // Tighten the upper bound before paying for the full scan
+                    double dx = x - centroids[a * 2];
+                    double dy = y - centroids[a * 2 + 1];
+                    u = Math.sqrt(dx * dx + dy * dy);
+                    evaluations++;
+                }
+                if (u + SLACK >= m) {
+                    a = fullScan(i, x, y, scratch);
+                    evaluations += k;
+                } else {
+                    upper[i] = u;
+                    lower[i] = l;
+                    skipped++;
+                }
+            }
+
+            double w = weight == null ? 1 : weight[i];
+            if (stats != null) {
+                if (assignment[i] != a) stats.changed++;
+                double dx = x - centroids[a * 2];
+                double dy = y - centroids[a * 2 + 1];
+                stats.inertia += w * (dx * dx + dy * dy);
+            }
+            assignment[i] = a;
+            sums[a * 2] += w * x;
+            sums[a * 2 + 1] += w * y;
+            weights[a] += w;
+        }
+        if (stats != null) {
+            stats.distanceEvaluations += evaluations;
+            stats.prunedEvaluations += skipped * k;
+        }
+    }
+
+    // Same distances and tie-breaking as DistanceKernel.nearest, so pruned and brute-force runs agree exactly
+    private int fullScan(int i, double x, double y, double[] scratch) {
+        DistanceKernel.squaredDistances(x, y, centers, scratch);
+        int best = 0;
+        double bestDist = Double.MAX_VALUE;
+        double secondDist = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double dist = scratch[c];
+            if (dist < bestDist) {
+                secondDist = bestDist;
+                bestDist = dist;
+                best = c;
+            } else if (dist < secondDist) {
+                secondDist = dist;
+            }
+        }
+        upper[i] = Math.sqrt(bestDist);
+        lower[i] = Math.sqrt(secondDist);
+        return best;
+    }
+}
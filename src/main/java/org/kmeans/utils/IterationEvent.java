@@ -0,0 +1,70 @@
+package org.kmeans.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// One IterationMetrics as a Flight Recorder event; record with e.g.
+// java -XX:StartFlightRecording=filename=results/kmeans.jfr ...
+@Name("org.kmeans.Iteration")
+@Label("K-Means Iteration")
+@Category("K-Means")
+@Description("Timings and counters of one Lloyd iteration")
+@StackTrace(false)
+public class IterationEvent extends Event {
+    @Label("Engine")
+    public String engine;
+
+    @Label("Iteration")
+    public int iteration;
+
+    @Label("Assignment Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long assignNanos;
+
+    @Label("Update Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long updateNanos;
+
+    @Label("Sites Changed")
+    public long changed;
+
+    @Label("Inertia")
+    public double inertia;
+
+    @Label("Max Center Shift")
+    public double shift;
+
+    @Label("Distance Evaluations")
+    public long distanceEvaluations;
+
+    @Label("Pruned Evaluations")
+    public long prunedEvaluations;
+
+    // Begun as the iteration starts, so the event spans it on the recording's timeline
+    static IterationEvent start() {
+        IterationEvent event = new IterationEvent();
+        event.begin();
+        return event;
+    }
+
+    // Fills in the finished iteration and commits; an event committed after the iteration
+    // (the distributed master's) has had end() called when the iteration ended
+    void emit(String engine, IterationMetrics metrics) {
+        if (!isEnabled()) return;
+        this.engine = engine;
+        iteration = metrics.iteration;
+        assignNanos = metrics.assignNanos;
+        updateNanos = metrics.updateNanos;
+        changed = metrics.changed;
+        inertia = metrics.inertia;
+        shift = metrics.shift;
+        distanceEvaluations = metrics.distanceEvaluations;
+        prunedEvaluations = metrics.prunedEvaluations;
+        commit();
+    }
+}
@@ -0,0 +1,33 @@
+package org.kmeans.utils;
+
+// What one Lloyd iteration did and where its time went. Inertia is measured against the
+// centers the sites were assigned to, before they move: degrees² in planar mode, squared
+// chord length on the unit sphere in geodesic mode.
+public class IterationMetrics {
+    public int iteration;
+    public long assignNanos;
+    public long updateNanos;
+    public long changed; // every site in the first iteration
+    public double inertia;
+    public double shift;
+    public long distanceEvaluations;
+    public long prunedEvaluations;
+    // Distributed runs only, indexed by rank: local assignment and update work, and time in
+    // the Allreduce (including waiting for slower ranks)
+    public long[] rankComputeNanos;
+    public long[] rankCommunicationNanos;
+
+    // ✅ Default constructor needed by Jackson
+    public IterationMetrics() {}
+
+    public IterationMetrics(int iteration, long assignNanos, long updateNanos, AssignmentStats stats, double shift) {
+        this.iteration = iteration;
+        this.assignNanos = assignNanos;
+        this.updateNanos = updateNanos;
+        this.changed = stats.changed;
+        this.inertia = stats.inertia;
+        this.shift = shift;
+        this.distanceEvaluations = stats.distanceEvaluations;
+        this.prunedEvaluations = stats.prunedEvaluations;
+    }
+}
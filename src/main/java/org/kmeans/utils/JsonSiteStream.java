@@ -0,0 +1,81 @@
+package org.kmeans.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+// Streams a JSON array of sites token by token, never holding more than one entry.
+// Accepts both the lat/lon/disposal_tons_per_year and latitude/longitude/capacity schemas.
+public class JsonSiteStream implements SiteStream {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final File file;
+    private JsonParser parser;
+
+    public JsonSiteStream(String jsonPath) throws IOException {
+        this.file = new File(jsonPath);
+        if (!file.exists()) {
+            throw new FileNotFoundException("Site file not found: " + jsonPath);
+        }
+        rewind();
+    }
+
+    @Override
+    public int next(double[] lat, double[] lon, double[] capacity, int max) throws IOException {
+        int n = 0;
+        while (n < max) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) break;
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            double la = Double.NaN, lo = Double.NaN, cap = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "lat", "latitude" -> la = parser.getValueAsDouble(Double.NaN);
+                    case "lon", "longitude" -> lo = parser.getValueAsDouble(Double.NaN);
+                    case "disposal_tons_per_year", "capacity" -> cap = parser.getValueAsDouble(0);
+                    default -> {
+                        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+
+            if (Double.isNaN(la) || Double.isNaN(lo)) continue; // Skip unrecognized entry
+
+            lat[n] = la;
+            lon[n] = lo;
+            capacity[n] = cap;
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public void rewind() throws IOException {
+        close();
+        parser = factory.createParser(file);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of sites in " + file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parser != null) {
+            parser.close();
+            parser = null;
+        }
+    }
+}
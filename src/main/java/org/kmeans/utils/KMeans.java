@@ -1,56 +1,90 @@
 package org.kmeans.utils;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Random;
 
 public class KMeans {
 
     public static ClusteringResult cluster(List<AccumulationSite> sites, int k, int maxIterations) {
-        List<ClusterCenter> centers = new ArrayList<>();
-        Random rand = new Random();
+        return cluster(SiteDataset.fromSites(sites), k, maxIterations);
+    }
 
-        // Initialize random cluster centers
-        for (int i = 0; i < k; i++) {
-            AccumulationSite randSite = sites.get(rand.nextInt(sites.size()));
-            centers.add(new ClusterCenter(randSite.latitude, randSite.longitude));
-        }
+    public static ClusteringResult cluster(SiteDataset data, int k, int maxIterations) {
+        return cluster(data, new ClusteringOptions(k, maxIterations));
+    }
+
+    public static ClusteringResult cluster(SiteDataset data, ClusteringOptions options) {
+        if (options.cache) return ResultCache.shared().computeIfAbsent("KMeans", data, options, KMeans::run);
+        return run(data, options);
+    }
+
+    private static ClusteringResult run(SiteDataset data, ClusteringOptions options) {
+        int k = options.k;
 
+        // Seed the initial cluster centers
+        double[] centroids = CentroidSeeding.seed(data, options);
+
+        int[] assignment = new int[data.size];
+        Arrays.fill(assignment, -1); // so the first iteration counts every site as changed
+        double[] weights = new double[k];
+        boolean geodesic = options.distance == DistanceMode.GEODESIC;
+        GeodesicKernel.UnitVectors vectors = geodesic ? GeodesicKernel.UnitVectors.of(data) : null;
+        double[] centers = geodesic ? GeodesicKernel.fromLatLon(centroids, k) : null;
+        double[] sums = new double[k * (geodesic ? 3 : 2)];
+        HamerlyAssigner pruner = options.assignment == AssignmentMode.HAMERLY && !geodesic
+                ? new HamerlyAssigner(data.size, k) : null;
+
+        ClusteringMetrics metrics = new ClusteringMetrics("KMeans");
+        AssignmentStats stats = new AssignmentStats();
+
+        ProgressPublisher progress = ProgressPublisher.of(options);
         long startTime = System.nanoTime();
         int cycles = 0;
+        double shift = 0;
 
-        for (int iter = 0; iter < maxIterations; iter++) {
+        for (int iter = 0; iter < options.maxIterations; iter++) {
             cycles++;
 
-            for (ClusterCenter center : centers)
-                center.assignedSites.clear();
+            IterationEvent event = IterationEvent.start();
+            long assignStart = System.nanoTime();
+            Arrays.fill(sums, 0);
+            Arrays.fill(weights, 0);
+            stats.reset();
 
             // Assign each site to the nearest center
-            for (AccumulationSite site : sites) {
-                ClusterCenter closest = null;
-                double minDist = Double.MAX_VALUE;
-                for (ClusterCenter center : centers) {
-                    double dist = site.distanceTo(center);
-                    if (dist < minDist) {
-                        minDist = dist;
-                        closest = center;
-                    }
-                }
-                closest.assignedSites.add(site);
+            if (geodesic) {
+                GeodesicKernel.assignRange(vectors, 0, data.size, centers, k, assignment, sums, weights, stats);
+            } else if (pruner != null) {
+                pruner.prepare(centroids);
+                pruner.assignRange(data, 0, data.size, centroids, assignment, sums, weights, stats);
+            } else {
+                ClusterKernels.assignRange(data, 0, data.size, centroids, k, assignment, sums, weights, stats);
             }
 
             // Update center positions
-            boolean changed = false;
-            for (ClusterCenter center : centers)
-                changed |= center.updateCenter(); // Return true if position changed
+            long updateStart = System.nanoTime();
+            shift = geodesic
+                    ? GeodesicKernel.updateCentroids(centers, sums, weights, k)
+                    : ClusterKernels.updateCentroids(centroids, sums, weights, k);
+            metrics.record(new IterationMetrics(cycles, updateStart - assignStart, System.nanoTime() - updateStart,
+                    stats, shift), event);
+
+            if (progress != null && progress.due(cycles)) {
+                progress.publish(cycles, geodesic ? GeodesicKernel.toLatLon(centers, k) : centroids, weights, shift);
+            }
 
             // COMMENT THIS OUT FOR TESTING!!!
-            if (!changed) break; // Early convergence
+            if (shift <= options.tolerance) break; // Early convergence
         }
 
         long endTime = System.nanoTime();
         long durationMillis = (endTime - startTime) / 1_000_000;
 
-        return new ClusteringResult(centers, cycles, durationMillis);
+        double[] finalCentroids = geodesic ? GeodesicKernel.toLatLon(centers, k) : centroids;
+        if (progress != null) progress.finish(cycles, finalCentroids, weights, shift);
+        ClusteringResult result = ClusterKernels.buildResult(data, finalCentroids, k, assignment, cycles, shift,
+                durationMillis);
+        result.metrics = metrics;
+        return result;
     }
 }
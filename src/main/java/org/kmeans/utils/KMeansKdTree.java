@@ -0,0 +1,163 @@
+package org.kmeans.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// Kanungo et al. filtering algorithm: a KD-tree over the sites is built once, and each
+// iteration walks it with a shrinking candidate set of centers. A center is dropped for a
+// node when it is farther than the best candidate from every point of the node's bounding
+// box; once a single candidate is left the whole subtree is assigned from its cached sums.
+public class KMeansKdTree {
+
+    // Aim for this many independent subtrees per core so work stays balanced
+    private static final int SUBTREES_PER_CORE = 8;
+
+    public static ClusteringResult cluster(SiteDataset data, int k, int maxIterations) {
+        return cluster(data, new ClusteringOptions(k, maxIterations));
+    }
+
+    public static ClusteringResult cluster(SiteDataset data, ClusteringOptions options) {
+        if (options.cache) return ResultCache.shared().computeIfAbsent("KMeansKdTree", data, options, KMeansKdTree::run);
+        return run(data, options);
+    }
+
+    private static ClusteringResult run(SiteDataset data, ClusteringOptions options) {
+        int k = options.k;
+
+        // Seed the initial cluster centers
+        double[] centroids = CentroidSeeding.seed(data, options);
+
+        long startTime = System.nanoTime();
+
+        KdTree tree = KdTree.build(data);
+        ForkJoinPool pool = ClusterPool.get(options.threads);
+        int maxSubtreeSize = Math.max(KdTree.LEAF_SIZE, data.size / (pool.getParallelism() * SUBTREES_PER_CORE));
+        int[] subtrees = tree.subtrees(maxSubtreeSize);
+
+        // One accumulator per subtree, merged in tree order so runs are deterministic
+        double[][] subtreeSums = new double[subtrees.length][k * 2];
+        double[][] subtreeWeights = new double[subtrees.length][k];
+        double[] sums = new double[k * 2];
+        double[] weights = new double[k];
+        int[] treeAssignment = new int[data.size];
+        int scratchSize = k * (tree.depth + 2);
+        ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[scratchSize]);
+
+        int cycles = 0;
+        double shift = 0;
+
+        for (int iter = 0; iter < options.maxIterations; iter++) {
+            cycles++;
+
+            ClusterPool.forEach(pool, subtrees.length, s -> {
+                Arrays.fill(subtreeSums[s], 0);
+                Arrays.fill(subtreeWeights[s], 0);
+                int[] candidates = scratch.get();
+                for (int c = 0; c < k; c++) candidates[c] = c;
+                filter(tree, subtrees[s], candidates, 0, k, centroids,
+                        subtreeSums[s], subtreeWeights[s], treeAssignment);
+            });
+
+            Arrays.fill(sums, 0);
+            Arrays.fill(weights, 0);
+            for (int s = 0; s < subtrees.length; s++) {
+                for (int i = 0; i < k * 2; i++) sums[i] += subtreeSums[s][i];
+                for (int i = 0; i < k; i++) weights[i] += subtreeWeights[s][i];
+            }
+
+            shift = ClusterKernels.updateCentroids(centroids, sums, weights, k);
+
+            if (shift <= options.tolerance) break; // early convergence
+        }
+
+        int[] assignment = new int[data.size];
+        for (int p = 0; p < data.size; p++) {
+            assignment[tree.order[p]] = treeAssignment[p];
+        }
+
+        long endTime = System.nanoTime();
+        long durationMillis = (endTime - startTime) / 1_000_000;
+
+        return ClusterKernels.buildResult(data, centroids, k, assignment, cycles, shift, durationMillis);
+    }
+
+    // Candidates for this node live in cand[base, base + count); survivors for the
+    // children are written directly after them, so no arrays are allocated per node
+    private static void filter(KdTree tree, int node, int[] cand, int base, int count, double[] centroids,
+                               double[] sums, double[] weights, int[] treeAssignment) {
+        if (count == 1) {
+            int c = cand[base];
+            sums[c * 2] += tree.sumLat[node];
+            sums[c * 2 + 1] += tree.sumLon[node];
+            weights[c] += tree.sumWeight[node];
+            Arrays.fill(treeAssignment, tree.from[node], tree.to[node], c);
+            return;
+        }
+
+        if (tree.isLeaf(node)) {
+            for (int p = tree.from[node]; p < tree.to[node]; p++) {
+                double lat = tree.lat[p];
+                double lon = tree.lon[p];
+                int best = cand[base];
+                double bestDist = Double.MAX_VALUE;
+                for (int j = base; j < base + count; j++) {
+                    int c = cand[j];
+                    double dx = lat - centroids[c * 2];
+                    double dy = lon - centroids[c * 2 + 1];
+                    double dist = dx * dx + dy * dy;
+                    if (dist < bestDist) {
+                        bestDist = dist;
+                        best = c;
+                    }
+                }
+                double w = tree.weight == null ? 1 : tree.weight[p];
+                treeAssignment[p] = best;
+                sums[best * 2] += w * lat;
+                sums[best * 2 + 1] += w * lon;
+                weights[best] += w;
+            }
+            return;
+        }
+
+        double minLat = tree.minLat[node], maxLat = tree.maxLat[node];
+        double minLon = tree.minLon[node], maxLon = tree.maxLon[node];
+
+        // Candidate closest to the cell midpoint
+        double midLat = 0.5 * (minLat + maxLat);
+        double midLon = 0.5 * (minLon + maxLon);
+        int star = cand[base];
+        double starDist = Double.MAX_VALUE;
+        for (int j = base; j < base + count; j++) {
+            int c = cand[j];
+            double dx = midLat - centroids[c * 2];
+            double dy = midLon - centroids[c * 2 + 1];
+            double dist = dx * dx + dy * dy;
+            if (dist < starDist) {
+                starDist = dist;
+                star = c;
+            }
+        }
+        double starLat = centroids[star * 2];
+        double starLon = centroids[star * 2 + 1];
+
+        // Keep z unless it is farther than z* from the box corner extreme in direction z - z*
+        int next = base + count;
+        int kept = 0;
+        for (int j = base; j < base + count; j++) {
+            int c = cand[j];
+            double zLat = centroids[c * 2];
+            double zLon = centroids[c * 2 + 1];
+            if (c != star) {
+                double vLat = zLat > starLat ? maxLat : minLat;
+                double vLon = zLon > starLon ? maxLon : minLon;
+                double dzLat = vLat - zLat, dzLon = vLon - zLon;
+                double dsLat = vLat - starLat, dsLon = vLon - starLon;
+                if (dzLat * dzLat + dzLon * dzLon > dsLat * dsLat + dsLon * dsLon) continue;
+            }
+            cand[next + kept++] = c;
+        }
+
+        filter(tree, tree.left[node], cand, next, kept, centroids, sums, weights, treeAssignment);
+        filter(tree, tree.right[node], cand, next, kept, centroids, sums, weights, treeAssignment);
+    }
+}
@@ -1,109 +1,128 @@
 package org.kmeans.utils;
 
-import java.util.*;
-import java.util.concurrent.*;
-
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Parallel Lloyd iterations on a shared ForkJoinPool. The sites are cut into fixed index
+// ranges ("leaves"), each with its own primitive sum/weight accumulators allocated once per
+// run; work-stealing balances the leaves across threads and the accumulators are reduced
+// in leaf order afterwards, so the result does not depend on thread scheduling.
 public class KMeansParallel {
 
+    private static final int LEAVES_PER_THREAD = 4;
+
     public static ClusteringResult cluster(List<AccumulationSite> sites, int k, int maxIterations) {
-        List<ClusterCenter> centers = new ArrayList<>();
-        Random rand = new Random();
+        return cluster(SiteDataset.fromSites(sites), k, maxIterations);
+    }
 
-        // Initialize random cluster centers
-        for (int i = 0; i < k; i++) {
-            AccumulationSite randSite = sites.get(rand.nextInt(sites.size()));
-            centers.add(new ClusterCenter(randSite.latitude, randSite.longitude));
-        }
+    public static ClusteringResult cluster(SiteDataset data, int k, int maxIterations) {
+        return cluster(data, new ClusteringOptions(k, maxIterations));
+    }
 
-        int cores = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(cores);
+    public static ClusteringResult cluster(SiteDataset data, ClusteringOptions options) {
+        if (options.cache) return ResultCache.shared().computeIfAbsent("KMeansParallel", data, options, KMeansParallel::run);
+        return run(data, options);
+    }
 
+    private static ClusteringResult run(SiteDataset data, ClusteringOptions options) {
+        int k = options.k;
+
+        // Seed the initial cluster centers
+        double[] centroids = CentroidSeeding.seed(data, options);
+        int[] assignment = new int[data.size];
+        Arrays.fill(assignment, -1); // so the first iteration counts every site as changed
+        ForkJoinPool pool = ClusterPool.get(options.threads);
+
+        boolean geodesic = options.distance == DistanceMode.GEODESIC;
+        GeodesicKernel.UnitVectors vectors = geodesic ? GeodesicKernel.UnitVectors.of(data, pool) : null;
+        double[] centers = geodesic ? GeodesicKernel.fromLatLon(centroids, k) : null;
+        int dims = geodesic ? 3 : 2;
+        HamerlyAssigner pruner = options.assignment == AssignmentMode.HAMERLY && !geodesic
+                ? new HamerlyAssigner(data.size, k) : null;
+
+        // Split sites into fixed index ranges, one accumulator per range
+        int grain = Math.max(1, (int) Math.ceil((double) data.size / (pool.getParallelism() * LEAVES_PER_THREAD)));
+        int leaves = (data.size + grain - 1) / grain;
+        double[][] leafSums = new double[leaves][k * dims];
+        double[][] leafWeights = new double[leaves][k];
+        AssignmentStats[] leafStats = new AssignmentStats[leaves];
+        for (int leaf = 0; leaf < leaves; leaf++) leafStats[leaf] = new AssignmentStats();
+        double[] sums = new double[k * dims];
+        double[] weights = new double[k];
+        AssignmentStats stats = new AssignmentStats();
+        ClusteringMetrics metrics = new ClusteringMetrics("KMeansParallel");
+
+        ProgressPublisher progress = ProgressPublisher.of(options);
         long startTime = System.nanoTime();
         int cycles = 0;
-
-        try {
-            for (int iter = 0; iter < maxIterations; iter++) {
-                cycles++;
-
-                // Clear assigned sites
-                for (ClusterCenter center : centers)
-                    center.assignedSites.clear();
-
-                // Prepare one assignment map per thread
-                List<Map<ClusterCenter, List<AccumulationSite>>> threadAssignments = new ArrayList<>();
-
-                // Chunk sites into batches for each thread
-                List<List<AccumulationSite>> batches = chunkSites(sites, cores);
-                List<Future<?>> futures = new ArrayList<>();
-
-                for (List<AccumulationSite> batch : batches) {
-                    Future<?> future = executor.submit(() -> {
-                        Map<ClusterCenter, List<AccumulationSite>> localMap = new HashMap<>();
-                        for (ClusterCenter center : centers)
-                            localMap.put(center, new ArrayList<>());
-
-                        for (AccumulationSite site : batch) {
-                            ClusterCenter closest = null;
-                            double minDist = Double.MAX_VALUE;
-                            for (ClusterCenter center : centers) {
-                                double dist = site.distanceTo(center);
-                                if (dist < minDist) {
-                                    minDist = dist;
-                                    closest = center;
-                                }
-                            }
-                            localMap.get(closest).add(site);
-                        }
-
-                        synchronized (threadAssignments) {
-                            threadAssignments.add(localMap);
-                        }
-                    });
-
-                    futures.add(future);
-                }
-
-                for (Future<?> f : futures) f.get(); // Wait for all threads
-
-                // Merge thread-local assignments into global lists
-                for (Map<ClusterCenter, List<AccumulationSite>> local : threadAssignments) {
-                    for (Map.Entry<ClusterCenter, List<AccumulationSite>> entry : local.entrySet()) {
-                        entry.getKey().assignedSites.addAll(entry.getValue());
-                    }
-                }
-
-                // Update centers in parallel
-                List<Future<Boolean>> updateTasks = new ArrayList<>();
-                for (ClusterCenter center : centers) {
-                    updateTasks.add(executor.submit(center::updateCenter));
+        double shift = 0;
+
+        for (int iter = 0; iter < options.maxIterations; iter++) {
+            cycles++;
+
+            IterationEvent event = IterationEvent.start();
+            long assignStart = System.nanoTime();
+            // Centers are prepared once here and shared by every leaf
+            GeodesicKernel.Centers preparedVectors = geodesic ? GeodesicKernel.prepare(centers, k) : null;
+            DistanceKernel.Centers prepared = !geodesic && pruner == null
+                    ? DistanceKernel.prepare(centroids, k) : null;
+            if (pruner != null) pruner.prepare(centroids);
+
+            ClusterPool.forEach(pool, leaves, leaf -> {
+                int from = leaf * grain;
+                int to = Math.min(data.size, from + grain);
+                double[] localSums = leafSums[leaf];
+                double[] localWeights = leafWeights[leaf];
+                AssignmentStats localStats = leafStats[leaf];
+                Arrays.fill(localSums, 0);
+                Arrays.fill(localWeights, 0);
+                localStats.reset();
+                if (geodesic) {
+                    GeodesicKernel.assignRange(vectors, from, to, centers, preparedVectors, assignment, localSums,
+                            localWeights, localStats);
+                } else if (pruner != null) {
+                    pruner.assignRange(data, from, to, centroids, assignment, localSums, localWeights, localStats);
+                } else {
+                    ClusterKernels.assignRange(data, from, to, centroids, prepared, assignment, localSums,
+                            localWeights, localStats);
                 }
+            });
+
+            // Reduce per-leaf accumulators in leaf order
+            long updateStart = System.nanoTime();
+            Arrays.fill(sums, 0);
+            Arrays.fill(weights, 0);
+            stats.reset();
+            for (int leaf = 0; leaf < leaves; leaf++) {
+                double[] localSums = leafSums[leaf];
+                double[] localWeights = leafWeights[leaf];
+                for (int i = 0; i < k * dims; i++) sums[i] += localSums[i];
+                for (int i = 0; i < k; i++) weights[i] += localWeights[i];
+                stats.add(leafStats[leaf]);
+            }
 
-                boolean changed = false;
-                for (Future<Boolean> update : updateTasks) {
-                    if (update.get()) changed = true;
-                }
+            shift = geodesic
+                    ? GeodesicKernel.updateCentroids(centers, sums, weights, k)
+                    : ClusterKernels.updateCentroids(centroids, sums, weights, k);
+            metrics.record(new IterationMetrics(cycles, updateStart - assignStart, System.nanoTime() - updateStart,
+                    stats, shift), event);
 
-                if (!changed) break; // early convergence
+            if (progress != null && progress.due(cycles)) {
+                progress.publish(cycles, geodesic ? GeodesicKernel.toLatLon(centers, k) : centroids, weights, shift);
             }
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        } finally {
-            executor.shutdown();
+
+            if (shift <= options.tolerance) break; // early convergence
         }
 
         long endTime = System.nanoTime();
         long durationMillis = (endTime - startTime) / 1_000_000;
 
-        return new ClusteringResult(centers, cycles, durationMillis);
-    }
-
-    // Helper method to split sites into N roughly equal chunks
-    private static List<List<AccumulationSite>> chunkSites(List<AccumulationSite> sites, int numChunks) {
-        List<List<AccumulationSite>> chunks = new ArrayList<>();
-        int chunkSize = (int) Math.ceil((double) sites.size() / numChunks);
-        for (int i = 0; i < sites.size(); i += chunkSize) {
-            chunks.add(sites.subList(i, Math.min(sites.size(), i + chunkSize)));
-        }
-        return chunks;
+        double[] finalCentroids = geodesic ? GeodesicKernel.toLatLon(centers, k) : centroids;
+        if (progress != null) progress.finish(cycles, finalCentroids, weights, shift);
+        ClusteringResult result = ClusterKernels.buildResult(data, finalCentroids, k, assignment, cycles, shift,
+                durationMillis);
+        result.metrics = metrics;
+        return result;
     }
 }
@@ -0,0 +1,201 @@
+package org.kmeans.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+
+// Clusters one dataset for a range of k to help pick k. The sorted k values are split into
+// `lanes` consecutive blocks run concurrently as tasks on the engines' own pool; within a
+// block each k starts from the previous k's centers plus k-means++ picks for the new ones.
+// Every k is scored by inertia (for the elbow) and by the silhouette of one fixed sample of
+// sites, whose pairwise distances are computed once and shared by all k.
+public class KSweep {
+
+    public static final int SILHOUETTE_SAMPLE = 2000;
+
+    public static class Row {
+        public final int k;
+        public final ClusteringResult result;
+        public final double inertia;    // weighted; degrees² (planar) or squared chord (geodesic)
+        public final double silhouette; // -1..1 over the sample, higher is better
+
+        Row(int k, ClusteringResult result, double inertia, double silhouette) {
+            this.k = k;
+            this.result = result;
+            this.inertia = inertia;
+            this.silhouette = silhouette;
+        }
+    }
+
+    // Rows in ascending k; ks must be distinct and at least 1
+    public static List<Row> run(SiteDataset data, int[] ks, ClusteringOptions options, int lanes,
+                                BiFunction<SiteDataset, ClusteringOptions, ClusteringResult> engine) {
+        int[] sorted = ks.clone();
+        Arrays.sort(sorted);
+        ForkJoinPool pool = ClusterPool.get(options.threads);
+        Silhouette silhouette = new Silhouette(data, SILHOUETTE_SAMPLE, options.distance,
+                options.seed != null ? options.seed : 42);
+
+        Row[] rows = new Row[sorted.length];
+        int blocks = Math.max(1, Math.min(lanes, sorted.length));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            int from = b * sorted.length / blocks;
+            int to = (b + 1) * sorted.length / blocks;
+            tasks.add(pool.submit(() -> {
+                double[] previous = null;
+                int previousK = 0;
+                for (int i = from; i < to; i++) {
+                    int k = sorted[i];
+                    ClusteringOptions run = options.copy();
+                    run.k = k;
+                    if (previous != null) {
+                        Random rand = options.seed != null ? new Random(options.seed + k) : new Random();
+                        run.initialCentroids = CentroidSeeding.extend(data, previous, previousK, k, rand);
+                    }
+                    ClusteringResult result = engine.apply(data, run);
+                    rows[i] = new Row(k, result, inertia(data, result, options.distance),
+                            silhouette.score(result.assignment, k));
+                    System.out.println("k = " + k + ": " + result.cycles + " iterations, "
+                            + result.durationMillis + " ms");
+                    previous = WarmStart.centroidsOf(result);
+                    previousK = k;
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) task.join();
+        return List.of(rows);
+    }
+
+    // Weighted sum of squared distances of the sites to their final centers
+    public static double inertia(SiteDataset data, ClusteringResult result, DistanceMode distance) {
+        int k = result.centers.size();
+        double[] centroids = WarmStart.centroidsOf(result);
+        double[] vectors = distance == DistanceMode.GEODESIC ? GeodesicKernel.fromLatLon(centroids, k) : null;
+        double total = 0;
+        for (int i = 0; i < data.size; i++) {
+            int c = result.assignment[i];
+            if (vectors != null) {
+                double lat = Math.toRadians(data.lat[i]);
+                double lon = Math.toRadians(data.lon[i]);
+                double dot = Math.cos(lat) * Math.cos(lon) * vectors[c * 3]
+                        + Math.cos(lat) * Math.sin(lon) * vectors[c * 3 + 1] + Math.sin(lat) * vectors[c * 3 + 2];
+                total += data.weight(i) * Math.max(0, 2 - 2 * dot);
+            } else {
+                double dx = data.lat[i] - centroids[c * 2];
+                double dy = data.lon[i] - centroids[c * 2 + 1];
+                total += data.weight(i) * (dx * dx + dy * dy);
+            }
+        }
+        return total;
+    }
+
+    // The k where inertia bends most: the largest ratio of the drop into a k to the drop out
+    // of it (interior rows only), so a steady curve scores about 1 and a real elbow stands out
+    public static int elbow(List<Row> rows) {
+        if (rows.size() < 3) return rows.get(0).k;
+        int best = rows.get(1).k;
+        double bestRatio = Double.NEGATIVE_INFINITY;
+        for (int i = 1; i < rows.size() - 1; i++) {
+            double before = rows.get(i - 1).inertia - rows.get(i).inertia;
+            double after = rows.get(i).inertia - rows.get(i + 1).inertia;
+            double ratio = before / Math.max(after, 1e-12 * rows.get(i - 1).inertia);
+            if (ratio > bestRatio) {
+                bestRatio = ratio;
+                best = rows.get(i).k;
+            }
+        }
+        return best;
+    }
+
+    public static int bestSilhouette(List<Row> rows) {
+        Row best = rows.get(0);
+        for (Row row : rows) {
+            if (row.silhouette > best.silhouette) best = row;
+        }
+        return best.k;
+    }
+
+    // Exact silhouette over a fixed random sample: a site's a is its mean distance to the other
+    // sampled sites of its cluster, b the smallest mean distance to another cluster's sampled
+    // sites. Unweighted; planar distances in degrees or arcs in degrees.
+    static class Silhouette {
+        private final int[] sample;
+        private final float[] distances; // size x size
+
+        Silhouette(SiteDataset data, int size, DistanceMode distance, long seed) {
+            int m = Math.min(size, data.size);
+            sample = new int[m];
+            if (m == data.size) {
+                for (int i = 0; i < m; i++) sample[i] = i;
+            } else {
+                // Floyd's algorithm: m distinct indices without shuffling all n
+                Random rand = new Random(seed);
+                Set<Integer> picked = new HashSet<>();
+                for (int j = data.size - m; j < data.size; j++) {
+                    int t = rand.nextInt(j + 1);
+                    picked.add(picked.contains(t) ? j : t);
+                }
+                int i = 0;
+                for (int index : picked) sample[i++] = index;
+                Arrays.sort(sample);
+            }
+
+            double[] latLon = new double[m * 2];
+            for (int i = 0; i < m; i++) {
+                latLon[i * 2] = data.lat[sample[i]];
+                latLon[i * 2 + 1] = data.lon[sample[i]];
+            }
+            double[] v = distance == DistanceMode.GEODESIC ? GeodesicKernel.fromLatLon(latLon, m) : null;
+            distances = new float[m * m];
+            for (int i = 0; i < m; i++) {
+                for (int j = i + 1; j < m; j++) {
+                    double d;
+                    if (v != null) {
+                        d = GeodesicKernel.arcDegrees(v[i * 3], v[i * 3 + 1], v[i * 3 + 2],
+                                v[j * 3], v[j * 3 + 1], v[j * 3 + 2]);
+                    } else {
+                        double dx = latLon[i * 2] - latLon[j * 2];
+                        double dy = latLon[i * 2 + 1] - latLon[j * 2 + 1];
+                        d = Math.sqrt(dx * dx + dy * dy);
+                    }
+                    distances[i * m + j] = (float) d;
+                    distances[j * m + i] = (float) d;
+                }
+            }
+        }
+
+        double score(int[] assignment, int k) {
+            int m = sample.length;
+            int[] label = new int[m];
+            int[] members = new int[k];
+            for (int i = 0; i < m; i++) {
+                label[i] = assignment[sample[i]];
+                members[label[i]]++;
+            }
+            double[] sum = new double[k];
+            double total = 0;
+            for (int i = 0; i < m; i++) {
+                Arrays.fill(sum, 0);
+                for (int j = 0; j < m; j++) sum[label[j]] += distances[i * m + j];
+                int own = label[i];
+                if (members[own] < 2) continue; // a lone site scores 0
+                double a = sum[own] / (members[own] - 1);
+                double b = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    if (c != own && members[c] > 0) b = Math.min(b, sum[c] / members[c]);
+                }
+                if (b == Double.MAX_VALUE) continue; // only one cluster in the sample
+                double spread = Math.max(a, b);
+                if (spread > 0) total += (b - a) / spread;
+            }
+            return total / m;
+        }
+    }
+}
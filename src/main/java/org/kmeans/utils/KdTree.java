@@ -0,0 +1,164 @@
+package org.kmeans.utils;
+
+import java.util.Arrays;
+
+// Static 2-D KD-tree over a SiteDataset, built once per run.
+// Coordinates are copied into tree order so every node covers a contiguous range
+// [from, to) of lat/lon, and each node caches its bounding box, its weighted coordinate
+// sums and its total weight (the site count for an unweighted dataset).
+public class KdTree {
+
+    static final int LEAF_SIZE = 32;
+
+    public final int[] order;    // tree position -> dataset index
+    public final double[] lat;   // latitudes in tree order
+    public final double[] lon;   // longitudes in tree order
+    public final double[] weight; // weights in tree order; null = every site counts once
+
+    final int[] from, to, left, right;
+    final double[] minLat, maxLat, minLon, maxLon;
+    final double[] sumLat, sumLon, sumWeight;
+    final int root;
+    int nodeCount;
+    int depth;
+
+    private KdTree(SiteDataset data) {
+        int n = data.size;
+        order = new int[n];
+        lat = data.lat.clone();
+        lon = data.lon.clone();
+        weight = data.weight != null ? data.weight.clone() : null;
+        for (int i = 0; i < n; i++) order[i] = i;
+
+        // Median splits keep every leaf above LEAF_SIZE / 2 sites
+        int maxNodes = 4 * (n / LEAF_SIZE) + 4;
+        from = new int[maxNodes];
+        to = new int[maxNodes];
+        left = new int[maxNodes];
+        right = new int[maxNodes];
+        minLat = new double[maxNodes];
+        maxLat = new double[maxNodes];
+        minLon = new double[maxNodes];
+        maxLon = new double[maxNodes];
+        sumLat = new double[maxNodes];
+        sumLon = new double[maxNodes];
+        sumWeight = new double[maxNodes];
+
+        root = n == 0 ? -1 : build(0, n, 1);
+    }
+
+    public static KdTree build(SiteDataset data) {
+        return new KdTree(data);
+    }
+
+    public int size(int node) {
+        return to[node] - from[node];
+    }
+
+    public boolean isLeaf(int node) {
+        return left[node] < 0;
+    }
+
+    // Left-to-right list of the highest nodes holding at most maxSize sites
+    public int[] subtrees(int maxSize) {
+        if (root < 0) return new int[0];
+        int[] found = new int[nodeCount];
+        int[] stack = new int[depth + 1];
+        int count = 0, top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (size(node) <= maxSize || isLeaf(node)) {
+                found[count++] = node;
+            } else {
+                stack[top++] = right[node];
+                stack[top++] = left[node];
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private int build(int lo, int hi, int level) {
+        int node = nodeCount++;
+        depth = Math.max(depth, level);
+        from[node] = lo;
+        to[node] = hi;
+
+        double aLat = Double.MAX_VALUE, bLat = -Double.MAX_VALUE;
+        double aLon = Double.MAX_VALUE, bLon = -Double.MAX_VALUE;
+        double sLat = 0, sLon = 0, sWeight = 0;
+        for (int i = lo; i < hi; i++) {
+            aLat = Math.min(aLat, lat[i]);
+            bLat = Math.max(bLat, lat[i]);
+            aLon = Math.min(aLon, lon[i]);
+            bLon = Math.max(bLon, lon[i]);
+            double w = weight == null ? 1 : weight[i];
+            sLat += w * lat[i];
+            sLon += w * lon[i];
+            sWeight += w;
+        }
+        minLat[node] = aLat;
+        maxLat[node] = bLat;
+        minLon[node] = aLon;
+        maxLon[node] = bLon;
+        sumLat[node] = sLat;
+        sumLon[node] = sLon;
+        sumWeight[node] = sWeight;
+
+        if (hi - lo <= LEAF_SIZE) {
+            left[node] = -1;
+            right[node] = -1;
+            return node;
+        }
+
+        // Split on the median of the wider dimension
+        boolean splitLat = (bLat - aLat) >= (bLon - aLon);
+        int mid = (lo + hi) >>> 1;
+        select(splitLat ? lat : lon, lo, hi - 1, mid);
+
+        left[node] = build(lo, mid, level + 1);
+        right[node] = build(mid, hi, level + 1);
+        return node;
+    }
+
+    // Quickselect: places the nth smallest key at position nth, keeping the columns and order in step
+    private void select(double[] key, int lo, int hi, int nth) {
+        while (hi > lo) {
+            double pivot = key[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (key[i] < pivot) i++;
+                while (key[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double t = lat[i];
+        lat[i] = lat[j];
+        lat[j] = t;
+        t = lon[i];
+        lon[i] = lon[j];
+        lon[j] = t;
+        if (weight != null) {
+            t = weight[i];
+            weight[i] = weight[j];
+            weight[j] = t;
+        }
+        int o = order[i];
+        order[i] = order[j];
+        order[j] = o;
+    }
+}
@@ -6,7 +6,7 @@ import org.openstreetmap.gui.jmapviewer.Coordinate;
 import java.awt.*;
 
 public class LabeledMapMarker extends MapMarkerCircle {
-    private final String label;
+    private String label;
 
     public LabeledMapMarker(Coordinate coord, double radius, String label, Color fillColor) {
         super(coord, radius);
@@ -16,6 +16,10 @@ public class LabeledMapMarker extends MapMarkerCircle {
         setStroke(new BasicStroke(2));
     }
 
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
     @Override
     public void paint(Graphics g, Point position, int radius) {
         super.paint(g, position, radius);
@@ -0,0 +1,127 @@
+package org.kmeans.utils;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Uniform random points on land inside a lat/lon box.
+// The land polygons are split into their parts and indexed in an STRtree; the parts that
+// touch the box are clipped to it and prepared once. A sample picks a part with probability
+// proportional to its area, draws inside that part's own envelope and keeps the point if the
+// prepared part contains it, so every point of land in the box is equally likely while the
+// rejection rate depends on the part's shape, not on how much of the box is sea.
+public class LandSampler {
+
+    // Sites per RNG stream; streams are split off in chunk order, so the output for a
+    // seed does not depend on the number of threads
+    private static final int CHUNK_SIZE = 4096;
+
+    private final GeometryFactory geometryFactory;
+    private final PreparedGeometry[] parts;
+    private final double[] minLat, minLon, latSpan, lonSpan;
+    private final double[] cumulativeArea;
+
+    public LandSampler(List<Geometry> polygons, GeometryFactory geometryFactory,
+                       double boxMinLat, double boxMaxLat, double boxMinLon, double boxMaxLon) {
+        this.geometryFactory = geometryFactory;
+
+        STRtree index = new STRtree();
+        for (Geometry polygon : polygons) {
+            for (int g = 0; g < polygon.getNumGeometries(); g++) {
+                Geometry part = polygon.getGeometryN(g);
+                index.insert(part.getEnvelopeInternal(), part);
+            }
+        }
+        index.build();
+
+        // x is longitude, y is latitude
+        Envelope box = new Envelope(boxMinLon, boxMaxLon, boxMinLat, boxMaxLat);
+        Geometry boxGeometry = geometryFactory.toGeometry(box);
+        List<Geometry> clipped = new ArrayList<>();
+        for (Object hit : index.query(box)) {
+            Geometry inside = ((Geometry) hit).intersection(boxGeometry);
+            for (int g = 0; g < inside.getNumGeometries(); g++) {
+                Geometry piece = inside.getGeometryN(g);
+                if (!piece.isEmpty() && piece.getArea() > 0) clipped.add(piece);
+            }
+        }
+        if (clipped.isEmpty()) {
+            throw new IllegalStateException("No land polygons inside the sampling box");
+        }
+
+        int n = clipped.size();
+        this.parts = new PreparedGeometry[n];
+        this.minLat = new double[n];
+        this.minLon = new double[n];
+        this.latSpan = new double[n];
+        this.lonSpan = new double[n];
+        this.cumulativeArea = new double[n];
+        double total = 0;
+        for (int p = 0; p < n; p++) {
+            Geometry piece = clipped.get(p);
+            Envelope env = piece.getEnvelopeInternal();
+            parts[p] = PreparedGeometryFactory.prepare(piece);
+            minLat[p] = env.getMinY();
+            minLon[p] = env.getMinX();
+            latSpan[p] = env.getHeight();
+            lonSpan[p] = env.getWidth();
+            total += piece.getArea();
+            cumulativeArea[p] = total;
+        }
+    }
+
+    // Capacities are uniform in [minCapacity, maxCapacity)
+    public SiteDataset sample(int count, double minCapacity, double maxCapacity, long seed, int threads) {
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        double[] capacity = new double[count];
+
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) streams[c] = root.split();
+        long[] attempts = new long[chunks];
+
+        double totalArea = cumulativeArea[cumulativeArea.length - 1];
+        ClusterPool.forEach(ClusterPool.get(threads), chunks, chunk -> {
+            SplittableRandom rand = streams[chunk];
+            int to = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < to; i++) {
+                int p = pickPart(rand.nextDouble() * totalArea);
+                double la, lo;
+                do {
+                    attempts[chunk]++;
+                    la = minLat[p] + rand.nextDouble() * latSpan[p];
+                    lo = minLon[p] + rand.nextDouble() * lonSpan[p];
+                } while (!parts[p].contains(point(la, lo)));
+                lat[i] = la;
+                lon[i] = lo;
+                capacity[i] = minCapacity + rand.nextDouble() * (maxCapacity - minCapacity);
+            }
+        });
+
+        System.out.println("Generated " + count + " random land-based sites after "
+                + Arrays.stream(attempts).sum() + " attempts.");
+        return new SiteDataset(lat, lon, capacity);
+    }
+
+    private int pickPart(double target) {
+        int p = Arrays.binarySearch(cumulativeArea, target);
+        p = p < 0 ? -p - 1 : p + 1;
+        return Math.min(p, cumulativeArea.length - 1);
+    }
+
+    private Point point(double lat, double lon) {
+        return geometryFactory.createPoint(new Coordinate(lon, lat));
+    }
+}
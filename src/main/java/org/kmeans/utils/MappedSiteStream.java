@@ -0,0 +1,82 @@
+package org.kmeans.utils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Reads a SiteBinaryFormat file through memory-mapped column views. Nothing is parsed:
+// batches and slices are bulk copies out of the page cache.
+public class MappedSiteStream implements SiteStream {
+
+    public final int size;
+
+    private final DoubleBuffer lat;
+    private final DoubleBuffer lon;
+    private final DoubleBuffer capacity;
+    private int position = 0;
+
+    public MappedSiteStream(String path) throws IOException {
+        Path file = Path.of(path);
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException("Site file not found: " + path);
+        }
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file)) {
+            size = SiteBinaryFormat.readHeader(channel, path);
+            lat = SiteBinaryFormat.mapColumn(channel, FileChannel.MapMode.READ_ONLY, size, 0);
+            lon = SiteBinaryFormat.mapColumn(channel, FileChannel.MapMode.READ_ONLY, size, 1);
+            capacity = SiteBinaryFormat.mapColumn(channel, FileChannel.MapMode.READ_ONLY, size, 2);
+        }
+    }
+
+    @Override
+    public int next(double[] lat, double[] lon, double[] capacity, int max) {
+        int n = Math.min(max, size - position);
+        this.lat.get(position, lat, 0, n);
+        this.lon.get(position, lon, 0, n);
+        this.capacity.get(position, capacity, 0, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void rewind() {
+        position = 0;
+    }
+
+    // Copies sites [from, to) into a dataset for the clustering engines
+    public SiteDataset slice(int from, int to) {
+        int n = to - from;
+        double[] sliceLat = new double[n];
+        double[] sliceLon = new double[n];
+        double[] sliceCap = new double[n];
+        lat.get(from, sliceLat, 0, n);
+        lon.get(from, sliceLon, 0, n);
+        capacity.get(from, sliceCap, 0, n);
+        return new SiteDataset(sliceLat, sliceLon, sliceCap);
+    }
+
+    // Sites [from, to) of an evenly spaced sample of `requested` records: sample site j is
+    // file record floor(j * size / requested), so any range can be read without the others
+    public SiteDataset sample(int requested, int from, int to) {
+        if (requested == size) return slice(from, to);
+        int n = to - from;
+        double[] sampleLat = new double[n];
+        double[] sampleLon = new double[n];
+        double[] sampleCap = new double[n];
+        for (int j = 0; j < n; j++) {
+            int record = (int) ((long) (from + j) * size / requested);
+            sampleLat[j] = lat.get(record);
+            sampleLon[j] = lon.get(record);
+            sampleCap[j] = capacity.get(record);
+        }
+        return new SiteDataset(sampleLat, sampleLon, sampleCap);
+    }
+
+    public SiteDataset toDataset() {
+        return slice(0, size);
+    }
+}
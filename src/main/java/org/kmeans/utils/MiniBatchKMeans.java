@@ -0,0 +1,217 @@
+package org.kmeans.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Sculley-style mini-batch k-means over a SiteStream. Only one batch and a fixed-size
+// held-out sample are ever in memory, so the input can be far larger than the heap.
+// Each center moves towards its batch points with its own learning rate 1 / (points seen).
+public class MiniBatchKMeans {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int HOLDOUT_STRIDE = 50;     // every 50th site is held out of training
+    private static final int HOLDOUT_SIZE = 20_000;   // ...and kept for evaluation, up to this many
+    private static final int EVAL_EVERY = 10;         // batches between held-out evaluations
+    private static final int PATIENCE = 3;            // flat evaluations in a row before stopping
+    private static final double TOLERANCE = 1e-4;     // relative held-out inertia change
+
+    // Accepts a JSON or a binary site file
+    public static ClusteringResult cluster(String path, ClusteringOptions options, int batchSize) {
+        try (SiteStream stream = SiteStream.open(path)) {
+            return cluster(stream, options, batchSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to stream sites from file: " + path, e);
+        }
+    }
+
+    // Same, training on the first maxSites sites of the file only
+    public static ClusteringResult cluster(String path, ClusteringOptions options, int batchSize, long maxSites) {
+        try (SiteStream stream = SiteStream.limit(SiteStream.open(path), maxSites)) {
+            return cluster(stream, options, batchSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to stream sites from file: " + path, e);
+        }
+    }
+
+    // Full clustering of the first maxSites sites of the file with the trained centers, see below
+    public static ClusteringResult assignAll(String path, ClusteringResult trained, long maxSites) {
+        try (SiteStream stream = SiteStream.limit(SiteStream.open(path), maxSites)) {
+            return assignAll(stream, trained);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to stream sites from file: " + path, e);
+        }
+    }
+
+    // options.maxIterations caps the number of passes over the stream
+    public static ClusteringResult cluster(SiteStream stream, ClusteringOptions options, int batchSize)
+            throws IOException {
+        int k = options.k;
+        Random rand = options.newRandom();
+
+        double[] batchLat = new double[batchSize];
+        double[] batchLon = new double[batchSize];
+        double[] batchCap = new double[batchSize];
+        int[] batchAssignment = new int[batchSize];
+        double[] scratch = DistanceKernel.prepare(new double[k * 2], k).newScratch();
+
+        double[] holdLat = new double[HOLDOUT_SIZE];
+        double[] holdLon = new double[HOLDOUT_SIZE];
+        double[] holdCap = new double[HOLDOUT_SIZE];
+        int holdCount = 0;
+
+        double[] centroids = null;
+        double[] before = new double[k * 2];
+        long[] seen = new long[k];
+
+        long startTime = System.nanoTime();
+        int cycles = 0;
+        double shift = 0;
+        double lastInertia = Double.NaN;
+        int flat = 0;
+        boolean converged = false;
+
+        for (int epoch = 0; epoch < options.maxIterations && !converged; epoch++) {
+            if (epoch > 0) stream.rewind();
+            long record = 0;
+
+            int read;
+            while (!converged && (read = stream.next(batchLat, batchLon, batchCap, batchSize)) > 0) {
+                // Divert held-out sites and compact the training sites to the front
+                int m = 0;
+                for (int j = 0; j < read; j++) {
+                    if (record++ % HOLDOUT_STRIDE == 0) {
+                        if (epoch == 0 && holdCount < HOLDOUT_SIZE) {
+                            holdLat[holdCount] = batchLat[j];
+                            holdLon[holdCount] = batchLon[j];
+                            holdCap[holdCount] = batchCap[j];
+                            holdCount++;
+                        }
+                        continue;
+                    }
+                    batchLat[m] = batchLat[j];
+                    batchLon[m] = batchLon[j];
+                    batchCap[m] = batchCap[j];
+                    m++;
+                }
+                if (m == 0) continue;
+
+                if (centroids == null && options.initialCentroids != null) {
+                    centroids = options.initialCentroids.clone();
+                } else if (centroids == null) {
+                    SiteDataset first = new SiteDataset(Arrays.copyOf(batchLat, m),
+                            Arrays.copyOf(batchLon, m), Arrays.copyOf(batchCap, m));
+                    centroids = CentroidSeeding.seed(first, k, options.seeding, rand);
+                }
+
+                cycles++;
+
+                // Assign the whole batch against the current centers first...
+                DistanceKernel.Centers centers = DistanceKernel.prepare(centroids, k);
+                for (int j = 0; j < m; j++) {
+                    batchAssignment[j] = DistanceKernel.nearest(batchLat[j], batchLon[j], centers, scratch);
+                }
+                // ...then step each center towards its points with a per-center learning rate
+                System.arraycopy(centroids, 0, before, 0, k * 2);
+                for (int j = 0; j < m; j++) {
+                    int c = batchAssignment[j];
+                    double eta = 1.0 / ++seen[c];
+                    centroids[c * 2] += eta * (batchLat[j] - centroids[c * 2]);
+                    centroids[c * 2 + 1] += eta * (batchLon[j] - centroids[c * 2 + 1]);
+                }
+                shift = ClusterKernels.maxShift(before, centroids, k);
+
+                if (cycles % EVAL_EVERY == 0 && holdCount > 0) {
+                    double inertia = inertia(holdLat, holdLon, holdCount, centroids, k, scratch);
+                    // A held-out sample the centers fit exactly has inertia 0: unchanged counts as flat
+                    double change = inertia == lastInertia ? 0
+                            : Math.abs(lastInertia - inertia) / Math.max(inertia, Double.MIN_NORMAL);
+                    System.out.printf("[MINI-BATCH] batch %d: held-out inertia %.6f (change %.2e)%n",
+                            cycles, inertia, change);
+                    flat = change < TOLERANCE ? flat + 1 : 0;
+                    converged = flat >= PATIENCE;
+                    lastInertia = inertia;
+                }
+            }
+        }
+
+        if (centroids == null) {
+            throw new IllegalStateException("Site stream contained no sites");
+        }
+        if (converged) {
+            System.out.println("[MINI-BATCH] Converged on held-out sample after " + cycles + " batches.");
+        }
+
+        long endTime = System.nanoTime();
+        long durationMillis = (endTime - startTime) / 1_000_000;
+
+        // Only the held-out sample is materialized for the result; assignAll covers every site
+        SiteDataset holdout = new SiteDataset(Arrays.copyOf(holdLat, holdCount),
+                Arrays.copyOf(holdLon, holdCount), Arrays.copyOf(holdCap, holdCount));
+        int[] assignment = new int[holdCount];
+        DistanceKernel.Centers centers = DistanceKernel.prepare(centroids, k);
+        for (int i = 0; i < holdCount; i++) {
+            assignment[i] = DistanceKernel.nearest(holdLat[i], holdLon[i], centers, scratch);
+        }
+        return ClusterKernels.buildResult(holdout, centroids, k, assignment, cycles, shift, durationMillis);
+    }
+
+    // One more pass giving every site of the stream its nearest trained center, for callers
+    // that show the whole clustering rather than the held-out sample (App's map). Unlike
+    // training this keeps every site in memory, so it is for inputs that fit in the heap.
+    public static ClusteringResult assignAll(SiteStream stream, ClusteringResult trained) throws IOException {
+        long startTime = System.nanoTime();
+        int k = trained.centers.size();
+        double[] centroids = WarmStart.centroidsOf(trained);
+        DistanceKernel.Centers centers = DistanceKernel.prepare(centroids, k);
+        double[] scratch = centers.newScratch();
+
+        double[] batchLat = new double[DEFAULT_BATCH_SIZE];
+        double[] batchLon = new double[DEFAULT_BATCH_SIZE];
+        double[] batchCap = new double[DEFAULT_BATCH_SIZE];
+        double[] lat = new double[DEFAULT_BATCH_SIZE];
+        double[] lon = new double[DEFAULT_BATCH_SIZE];
+        double[] cap = new double[DEFAULT_BATCH_SIZE];
+        int[] assignment = new int[DEFAULT_BATCH_SIZE];
+        int n = 0;
+
+        stream.rewind();
+        int read;
+        while ((read = stream.next(batchLat, batchLon, batchCap, DEFAULT_BATCH_SIZE)) > 0) {
+            if (n + read > lat.length) {
+                int grown = Math.max(n + read, lat.length * 2);
+                lat = Arrays.copyOf(lat, grown);
+                lon = Arrays.copyOf(lon, grown);
+                cap = Arrays.copyOf(cap, grown);
+                assignment = Arrays.copyOf(assignment, grown);
+            }
+            for (int j = 0; j < read; j++) {
+                lat[n + j] = batchLat[j];
+                lon[n + j] = batchLon[j];
+                cap[n + j] = batchCap[j];
+                assignment[n + j] = DistanceKernel.nearest(batchLat[j], batchLon[j], centers, scratch);
+            }
+            n += read;
+        }
+
+        long durationMillis = trained.durationMillis + (System.nanoTime() - startTime) / 1_000_000;
+        SiteDataset sites = new SiteDataset(Arrays.copyOf(lat, n), Arrays.copyOf(lon, n), Arrays.copyOf(cap, n));
+        return ClusterKernels.buildResult(sites, centroids, k, Arrays.copyOf(assignment, n), trained.cycles,
+                trained.finalShift, durationMillis);
+    }
+
+    // Mean squared distance from each held-out site to its nearest center
+    private static double inertia(double[] lat, double[] lon, int n, double[] centroids, int k,
+                                  double[] scratch) {
+        DistanceKernel.Centers centers = DistanceKernel.prepare(centroids, k);
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            int c = DistanceKernel.nearest(lat[i], lon[i], centers, scratch);
+            double dx = lat[i] - centroids[c * 2];
+            double dy = lon[i] - centroids[c * 2 + 1];
+            total += dx * dx + dy * dy;
+        }
+        return total / n;
+    }
+}
@@ -0,0 +1,137 @@
+package org.kmeans.utils;
+
+import mpi.MPI;
+
+// Communicator over MPI.COMM_WORLD; MPI.Init must have been called
+public class MpjCommunicator implements Communicator {
+
+    private final int rank;
+    private final int size;
+
+    public MpjCommunicator() {
+        try {
+            this.rank = MPI.COMM_WORLD.Rank();
+            this.size = MPI.COMM_WORLD.Size();
+        } catch (Exception e) {
+            throw new RuntimeException("MPI is not initialized", e);
+        }
+    }
+
+    @Override
+    public int rank() {
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void send(double[] buf, int offset, int count, int dest, int tag) {
+        try {
+            MPI.COMM_WORLD.Send(buf, offset, count, MPI.DOUBLE, dest, tag);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Send to rank " + dest + " failed", e);
+        }
+    }
+
+    @Override
+    public void send(int[] buf, int offset, int count, int dest, int tag) {
+        try {
+            MPI.COMM_WORLD.Send(buf, offset, count, MPI.INT, dest, tag);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Send to rank " + dest + " failed", e);
+        }
+    }
+
+    @Override
+    public void recv(double[] buf, int offset, int count, int source, int tag) {
+        try {
+            MPI.COMM_WORLD.Recv(buf, offset, count, MPI.DOUBLE, source, tag);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Recv from rank " + source + " failed", e);
+        }
+    }
+
+    @Override
+    public void recv(int[] buf, int offset, int count, int source, int tag) {
+        try {
+            MPI.COMM_WORLD.Recv(buf, offset, count, MPI.INT, source, tag);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Recv from rank " + source + " failed", e);
+        }
+    }
+
+    @Override
+    public void bcast(double[] buf, int offset, int count) {
+        try {
+            MPI.COMM_WORLD.Bcast(buf, offset, count, MPI.DOUBLE, 0);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Bcast failed", e);
+        }
+    }
+
+    @Override
+    public void bcast(int[] buf, int offset, int count) {
+        try {
+            MPI.COMM_WORLD.Bcast(buf, offset, count, MPI.INT, 0);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Bcast failed", e);
+        }
+    }
+
+    @Override
+    public void allreduceSum(double[] send, double[] recv, int count) {
+        try {
+            MPI.COMM_WORLD.Allreduce(send, 0, recv, 0, count, MPI.DOUBLE, MPI.SUM);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Allreduce failed", e);
+        }
+    }
+
+    @Override
+    public void allgather(int[] send, int[] recv) {
+        try {
+            MPI.COMM_WORLD.Allgather(send, 0, 1, MPI.INT, recv, 0, 1, MPI.INT);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Allgather failed", e);
+        }
+    }
+
+    @Override
+    public void allgatherv(double[] send, double[] recv, int[] counts, int[] displs) {
+        try {
+            MPI.COMM_WORLD.Allgatherv(send, 0, counts[rank], MPI.DOUBLE, recv, 0, counts, displs, MPI.DOUBLE);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Allgatherv failed", e);
+        }
+    }
+
+    @Override
+    public void gather(int[] send, int[] recv) {
+        try {
+            MPI.COMM_WORLD.Gather(send, 0, 1, MPI.INT, recv, 0, 1, MPI.INT, 0);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Gather failed", e);
+        }
+    }
+
+    @Override
+    public void gatherv(int[] send, int[] recv, int[] counts, int[] displs) {
+        try {
+            MPI.COMM_WORLD.Gatherv(send, 0, send.length, MPI.INT, recv, 0, counts, displs, MPI.INT, 0);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Gatherv failed", e);
+        }
+    }
+
+    @Override
+    public void scatterv(double[] send, int[] counts, int[] displs, double[] recv) {
+        try {
+            MPI.COMM_WORLD.Scatterv(send, 0, counts, displs, MPI.DOUBLE, recv, 0, counts[rank], MPI.DOUBLE, 0);
+        } catch (Exception e) {
+            throw new RuntimeException("MPI Scatterv failed", e);
+        }
+    }
+}
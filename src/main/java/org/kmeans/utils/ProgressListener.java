@@ -0,0 +1,9 @@
+package org.kmeans.utils;
+
+// Receives ProgressSnapshots from a running engine (see ClusteringOptions.progress). Calls come
+// one at a time on a delivery thread of the run, never on a compute thread; when the listener
+// is slower than the engine, intermediate snapshots are skipped, never queued.
+@FunctionalInterface
+public interface ProgressListener {
+    void onProgress(ProgressSnapshot snapshot);
+}
@@ -0,0 +1,76 @@
+package org.kmeans.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Engine side of ClusteringOptions.progress. The engine thread only checks the throttle,
+// copies O(k) values into a snapshot and swaps it into a one-slot mailbox; a daemon thread
+// hands the newest snapshot to the listener. A slow listener therefore never holds up an
+// iteration, and snapshots it has no time for are replaced rather than queued.
+class ProgressPublisher {
+
+    private final ProgressListener listener;
+    private final int everyIterations;
+    private final long everyNanos;
+    private final long startTime = System.nanoTime();
+    private final AtomicReference<ProgressSnapshot> pending = new AtomicReference<>();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "clustering-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int lastIteration = 0;
+    private long lastTime = startTime;
+
+    private ProgressPublisher(ClusteringOptions options) {
+        this.listener = options.progress;
+        this.everyIterations = options.progressEveryIterations;
+        this.everyNanos = options.progressEveryMillis * 1_000_000;
+    }
+
+    // null when nobody listens, so engines can skip all of it
+    static ProgressPublisher of(ClusteringOptions options) {
+        return options.progress == null ? null : new ProgressPublisher(options);
+    }
+
+    // Whether this iteration should be published; with neither trigger set, every one is
+    boolean due(int iteration) {
+        boolean byIterations = everyIterations > 0 && iteration - lastIteration >= everyIterations;
+        boolean byTime = everyNanos > 0 && System.nanoTime() - lastTime >= everyNanos;
+        return byIterations || byTime || (everyIterations <= 0 && everyNanos <= 0);
+    }
+
+    // centroids are flat k x 2 lat/lon; both arrays are copied
+    void publish(int iteration, double[] centroids, double[] weights, double shift) {
+        lastIteration = iteration;
+        lastTime = System.nanoTime();
+        offer(new ProgressSnapshot(iteration, centroids, weights, shift, elapsedMillis(), false));
+    }
+
+    // Always delivered (after anything still pending); stops the delivery thread afterwards
+    void finish(int iteration, double[] centroids, double[] weights, double shift) {
+        offer(new ProgressSnapshot(iteration, centroids, weights, shift, elapsedMillis(), true));
+        delivery.shutdown();
+    }
+
+    private void offer(ProgressSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            delivery.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        ProgressSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) return;
+        try {
+            listener.onProgress(snapshot);
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Progress listener failed: " + e.getMessage());
+        }
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+}
@@ -0,0 +1,38 @@
+package org.kmeans.utils;
+
+// Immutable view of a run after one iteration: the centers and the weight (site count when
+// unweighted) each one was computed from. Only O(k) is copied; sites are never included.
+public final class ProgressSnapshot {
+    public final int iteration;
+    public final double shift;
+    public final long elapsedMillis;
+    public final boolean finished; // the last snapshot of the run
+    private final double[] centroids; // flat k x 2 lat/lon
+    private final double[] weights;
+
+    ProgressSnapshot(int iteration, double[] centroids, double[] weights, double shift, long elapsedMillis,
+                     boolean finished) {
+        this.iteration = iteration;
+        this.centroids = centroids.clone();
+        this.weights = weights.clone();
+        this.shift = shift;
+        this.elapsedMillis = elapsedMillis;
+        this.finished = finished;
+    }
+
+    public int k() {
+        return weights.length;
+    }
+
+    public double latitude(int c) {
+        return centroids[c * 2];
+    }
+
+    public double longitude(int c) {
+        return centroids[c * 2 + 1];
+    }
+
+    public double weight(int c) {
+        return weights[c];
+    }
+}
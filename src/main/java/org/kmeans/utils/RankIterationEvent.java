@@ -0,0 +1,47 @@
+package org.kmeans.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Emitted by every DistributedKMeansMPJ rank in its own JVM, as each iteration ends
+@Name("org.kmeans.RankIteration")
+@Label("K-Means Rank Iteration")
+@Category("K-Means")
+@Description("Compute and communication time of one rank in one distributed iteration")
+@StackTrace(false)
+public class RankIterationEvent extends Event {
+    @Label("Rank")
+    public int rank;
+
+    @Label("Iteration")
+    public int iteration;
+
+    @Label("Compute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long computeNanos;
+
+    @Label("Communication Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long communicationNanos;
+
+    // Begun as the iteration starts, so the event spans it on the recording's timeline
+    static RankIterationEvent start() {
+        RankIterationEvent event = new RankIterationEvent();
+        event.begin();
+        return event;
+    }
+
+    void emit(int rank, int iteration, long computeNanos, long communicationNanos) {
+        if (!isEnabled()) return;
+        this.rank = rank;
+        this.iteration = iteration;
+        this.computeNanos = computeNanos;
+        this.communicationNanos = communicationNanos;
+        commit();
+    }
+}
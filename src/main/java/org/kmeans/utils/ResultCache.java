@@ -0,0 +1,202 @@
+package org.kmeans.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+// Content-addressed cache of clustering results. The key is a SHA-256 over the site columns
+// (and weights) plus everything that changes the answer: engine, k, iteration cap,
+// tolerance, seeding and seed, assignment and distance mode, and any warm-start centers.
+// Thread count is left out because it only changes summation order. Only seeded runs are
+// cached: a run without a seed asks for a fresh random start, so it always runs.
+// Recent results stay in memory as centroids plus the int[] assignment (LRU, bounded by a
+// share of the heap); every result is also written under results/cache as a centers-only
+// JSON plus an AssignmentSidecar. A hit from either is rebuilt into a fresh ClusteringResult
+// without any distance work, so callers may change what they get.
+public class ResultCache {
+
+    public static final String DIRECTORY = "results/cache";
+
+    private static final double MEMORY_SHARE = 0.1; // of the max heap, for the in-memory entries
+    private static final int DISK_ENTRIES = 64;
+    private static final int HASH_CHUNK = 1 << 16;
+
+    private static ResultCache shared;
+
+    private final Path directory;
+    private final long memoryBytes;
+    private final int diskEntries;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+
+    // What a result is rebuilt from; the arrays are never handed out
+    private record Entry(int k, double[] centroids, int[] assignment, int cycles, double finalShift,
+                         long durationMillis) {
+        long bytes() {
+            return (long) assignment.length * Integer.BYTES + (long) centroids.length * Double.BYTES;
+        }
+
+        ClusteringResult rebuild(SiteDataset data) {
+            return ClusterKernels.buildResult(data, centroids, k, assignment.clone(), cycles, finalShift,
+                    durationMillis);
+        }
+    }
+
+    public ResultCache(Path directory, long memoryBytes, int diskEntries) {
+        this.directory = directory;
+        this.memoryBytes = memoryBytes;
+        this.diskEntries = diskEntries;
+    }
+
+    // The instance the engines use when options.cache is set
+    public static synchronized ResultCache shared() {
+        if (shared == null) {
+            long memoryBytes = (long) (HardwareInfo.getMaxMemoryMB() * MEMORY_SHARE) * 1024 * 1024;
+            shared = new ResultCache(Path.of(DIRECTORY), memoryBytes, DISK_ENTRIES);
+        }
+        return shared;
+    }
+
+    // Cached result for this request, or engine's result, which is then cached
+    public ClusteringResult computeIfAbsent(String engineName, SiteDataset data, ClusteringOptions options,
+                                            BiFunction<SiteDataset, ClusteringOptions, ClusteringResult> engine) {
+        if (options.seed == null) return engine.apply(data, options);
+        long startTime = System.nanoTime();
+        String key = key(engineName, data, options);
+        ClusteringResult cached = get(key, data);
+        if (cached != null) {
+            System.out.println("Result cache hit " + key.substring(0, 12) + " (" + engineName + ", k = "
+                    + options.k + ") in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+            return cached;
+        }
+        ClusteringResult result = engine.apply(data, options);
+        put(key, result);
+        return result;
+    }
+
+    public synchronized ClusteringResult get(String key, SiteDataset data) {
+        Entry entry = memory.get(key);
+        if (entry != null && entry.assignment.length == data.size) return entry.rebuild(data);
+
+        Path json = directory.resolve(key + ".json");
+        Path sidecarPath = directory.resolve(key + ".bin");
+        if (!Files.exists(json) || !Files.exists(sidecarPath)) return null;
+        try {
+            ClusteringResult summary = ResultSaver.loadResult(json.toString());
+            AssignmentSidecar sidecar = AssignmentSidecar.read(sidecarPath.toString());
+            if (summary == null || sidecar.assignment.length != data.size) return null;
+            entry = new Entry(sidecar.k, sidecar.centroids, sidecar.assignment, summary.cycles,
+                    summary.finalShift, summary.durationMillis);
+        } catch (IOException e) {
+            System.out.println("⚠️ Ignoring unreadable cache entry " + key + ": " + e.getMessage());
+            return null;
+        }
+        remember(key, entry);
+        return entry.rebuild(data);
+    }
+
+    public synchronized void put(String key, ClusteringResult result) {
+        if (result.assignment == null) return; // not built from a full dataset
+        int k = result.centers.size();
+        double[] centroids = new double[k * 2];
+        List<ClusterCenter> centers = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            ClusterCenter center = result.centers.get(c);
+            centroids[c * 2] = center.latitude;
+            centroids[c * 2 + 1] = center.longitude;
+            centers.add(new ClusterCenter(center.latitude, center.longitude));
+        }
+        // A copy, so the caller's result stays theirs to change
+        Entry entry = new Entry(k, centroids, result.assignment.clone(), result.cycles, result.finalShift,
+                result.durationMillis);
+        remember(key, entry);
+        try {
+            Files.createDirectories(directory);
+            new AssignmentSidecar(k, centroids, entry.assignment).write(directory.resolve(key + ".bin").toString());
+            ResultSaver.saveResult(new ClusteringResult(centers, result.cycles, result.finalShift,
+                    result.durationMillis), directory.resolve(key + ".json").toString());
+            trimDisk();
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not write cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    // Hex SHA-256 of the dataset and the parameters that decide the result
+    public static String key(String engineName, SiteDataset data, ClusteringOptions options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        String parameters = String.join("|", engineName, "k=" + options.k, "iter=" + options.maxIterations,
+                "tol=" + options.tolerance, "seeding=" + options.seeding, "seed=" + options.seed,
+                "assignment=" + options.assignment, "distance=" + options.distance, "n=" + data.size,
+                "weighted=" + (data.weight != null), "warm=" + (options.initialCentroids != null));
+        digest.update(parameters.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_CHUNK * Double.BYTES);
+        hashColumn(digest, buffer, data.lat);
+        hashColumn(digest, buffer, data.lon);
+        hashColumn(digest, buffer, data.capacity);
+        if (data.weight != null) hashColumn(digest, buffer, data.weight);
+        if (options.initialCentroids != null) hashColumn(digest, buffer, options.initialCentroids);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashColumn(MessageDigest digest, ByteBuffer buffer, double[] column) {
+        for (int from = 0; from < column.length; from += HASH_CHUNK) {
+            int n = Math.min(HASH_CHUNK, column.length - from);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(column, from, n);
+            buffer.limit(n * Double.BYTES);
+            digest.update(buffer);
+        }
+    }
+
+    private void remember(String key, Entry entry) {
+        Entry previous = memory.put(key, entry);
+        if (previous != null) cachedBytes -= previous.bytes();
+        cachedBytes += entry.bytes();
+        // Least recently used first; always keep the newest entry
+        Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+        while (cachedBytes > memoryBytes && memory.size() > 1) {
+            cachedBytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+        }
+    }
+
+    // Drops the oldest entries on disk beyond diskEntries
+    private void trimDisk() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            Path[] sidecars = files.filter(p -> p.toString().endsWith(".bin"))
+                    .sorted(Comparator.comparingLong(ResultCache::lastModified).reversed())
+                    .toArray(Path[]::new);
+            for (int i = diskEntries; i < sidecars.length; i++) {
+                String name = sidecars[i].getFileName().toString();
+                Files.deleteIfExists(sidecars[i]);
+                Files.deleteIfExists(directory.resolve(name.replace(".bin", ".json")));
+            }
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
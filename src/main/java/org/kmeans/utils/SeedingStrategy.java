@@ -0,0 +1,7 @@
+package org.kmeans.utils;
+
+public enum SeedingStrategy {
+    RANDOM,            // k distinct random sites
+    KMEANS_PLUS_PLUS,  // D^2-weighted sequential sampling (Arthur & Vassilvitskii)
+    KMEANS_PARALLEL    // k-means||: oversampled rounds, then weighted k-means++ (Bahmani et al.)
+}
@@ -0,0 +1,134 @@
+package org.kmeans.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Compact columnar site file, read back through FileChannel.map without parsing:
+//   int magic "KMSB", int version, int count, int reserved   (16-byte header)
+//   double lat[count], double lon[count], double capacity[count]
+// Everything is little-endian so the columns can be viewed in place on x86 and ARM.
+public class SiteBinaryFormat {
+
+    public static final int MAGIC = 0x4B4D5342;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // Each column is mapped on its own, and a single mapping is limited to 2 GB
+    public static final int MAX_SITES = Integer.MAX_VALUE / Double.BYTES;
+
+    private static final int CONVERT_BATCH = 4096;
+
+    public static void write(SiteDataset data, String path) throws IOException {
+        try (FileChannel channel = openForWrite(path)) {
+            mapColumn(channel, FileChannel.MapMode.READ_WRITE, data.size, 0).put(data.lat, 0, data.size);
+            mapColumn(channel, FileChannel.MapMode.READ_WRITE, data.size, 1).put(data.lon, 0, data.size);
+            mapColumn(channel, FileChannel.MapMode.READ_WRITE, data.size, 2).put(data.capacity, 0, data.size);
+            writeHeader(channel, data.size);
+        }
+    }
+
+    // Two streaming passes over the JSON (count, then fill), so the conversion itself never
+    // holds more than one batch of sites in memory. The header goes in last: a conversion that
+    // dies halfway leaves a file that fails isBinary, so convertIfStale redoes it.
+    public static void convert(String jsonPath, String binPath) throws IOException {
+        double[] lat = new double[CONVERT_BATCH];
+        double[] lon = new double[CONVERT_BATCH];
+        double[] cap = new double[CONVERT_BATCH];
+
+        try (SiteStream in = SiteStream.openJson(jsonPath);
+             FileChannel channel = openForWrite(binPath)) {
+            long count = 0;
+            int read;
+            while ((read = in.next(lat, lon, cap, CONVERT_BATCH)) > 0) count += read;
+            if (count > MAX_SITES) {
+                throw new IOException("Too many sites for one column mapping: " + count);
+            }
+            int n = (int) count;
+
+            DoubleBuffer latColumn = mapColumn(channel, FileChannel.MapMode.READ_WRITE, n, 0);
+            DoubleBuffer lonColumn = mapColumn(channel, FileChannel.MapMode.READ_WRITE, n, 1);
+            DoubleBuffer capColumn = mapColumn(channel, FileChannel.MapMode.READ_WRITE, n, 2);
+
+            in.rewind();
+            while ((read = in.next(lat, lon, cap, CONVERT_BATCH)) > 0) {
+                latColumn.put(lat, 0, read);
+                lonColumn.put(lon, 0, read);
+                capColumn.put(cap, 0, read);
+            }
+            writeHeader(channel, n);
+        }
+    }
+
+    // Converts once and reuses the binary file until the JSON changes
+    public static String convertIfStale(String jsonPath, String binPath) throws IOException {
+        File json = new File(jsonPath);
+        File bin = new File(binPath);
+        if (!bin.exists() || bin.lastModified() < json.lastModified() || !isBinary(binPath)) {
+            long start = System.currentTimeMillis();
+            convert(jsonPath, binPath);
+            System.out.println("Converted " + jsonPath + " to " + binPath + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return binPath;
+    }
+
+    public static boolean isBinary(String path) {
+        File file = new File(path);
+        if (!file.isFile() || file.length() < HEADER_BYTES) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ORDER);
+            raf.getChannel().read(header, 0);
+            return header.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Reads and checks the header; returns the site count
+    static int readHeader(FileChannel channel, String path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        if (channel.read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary site file: " + path);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary site file version " + header.getInt(4) + ": " + path);
+        }
+        int count = header.getInt(8);
+        if (count < 0 || channel.size() < HEADER_BYTES + 3L * count * Double.BYTES) {
+            throw new IOException("Truncated binary site file: " + path);
+        }
+        return count;
+    }
+
+    // Zero-copy view of one column (0 = lat, 1 = lon, 2 = capacity)
+    static DoubleBuffer mapColumn(FileChannel channel, FileChannel.MapMode mode, int count, int column)
+            throws IOException {
+        long offset = HEADER_BYTES + (long) column * count * Double.BYTES;
+        MappedByteBuffer bytes = channel.map(mode, offset, (long) count * Double.BYTES);
+        return bytes.order(ORDER).asDoubleBuffer();
+    }
+
+    // Written after the columns, so only a complete file carries the magic
+    private static void writeHeader(FileChannel channel, int count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).flip();
+        channel.write(header, 0);
+    }
+
+    private static FileChannel openForWrite(String path) throws IOException {
+        Path target = Path.of(path);
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
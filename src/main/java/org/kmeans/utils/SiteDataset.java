@@ -0,0 +1,78 @@
+package org.kmeans.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Packed structure-of-arrays copy of the sites, used by the clustering hot loops
+public class SiteDataset {
+    public final double[] lat;
+    public final double[] lon;
+    public final double[] capacity;
+    public final double[] weight; // how much each site pulls on its center; null = every site counts once
+    public final int size;
+
+    public SiteDataset(double[] lat, double[] lon, double[] capacity) {
+        this(lat, lon, capacity, null);
+    }
+
+    public SiteDataset(double[] lat, double[] lon, double[] capacity, double[] weight) {
+        if (lat.length != lon.length || lat.length != capacity.length
+                || (weight != null && weight.length != lat.length)) {
+            throw new IllegalArgumentException("Column lengths differ: " + lat.length + ", "
+                    + lon.length + ", " + capacity.length + (weight != null ? ", " + weight.length : ""));
+        }
+        this.lat = lat;
+        this.lon = lon;
+        this.capacity = capacity;
+        this.weight = weight;
+        this.size = lat.length;
+    }
+
+    // Same sites (columns are shared, not copied) with a weight per site
+    public SiteDataset withWeights(double[] weight) {
+        return new SiteDataset(lat, lon, capacity, weight);
+    }
+
+    // Sites weighted by their yearly disposal tonnage, so centers lean toward the big producers
+    public SiteDataset weightedByCapacity() {
+        return withWeights(capacity);
+    }
+
+    public double weight(int i) {
+        return weight == null ? 1 : weight[i];
+    }
+
+    public double totalWeight() {
+        if (weight == null) return size;
+        double total = 0;
+        for (int i = 0; i < size; i++) total += weight[i];
+        return total;
+    }
+
+    // Built once from SiteLoader output
+    public static SiteDataset fromSites(List<AccumulationSite> sites) {
+        int n = sites.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] capacity = new double[n];
+        for (int i = 0; i < n; i++) {
+            AccumulationSite site = sites.get(i);
+            lat[i] = site.latitude;
+            lon[i] = site.longitude;
+            capacity[i] = site.capacity;
+        }
+        return new SiteDataset(lat, lon, capacity);
+    }
+
+    public AccumulationSite toSite(int i) {
+        return new AccumulationSite(lat[i], lon[i], capacity[i]);
+    }
+
+    public List<AccumulationSite> toSites() {
+        List<AccumulationSite> sites = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sites.add(toSite(i));
+        }
+        return sites;
+    }
+}
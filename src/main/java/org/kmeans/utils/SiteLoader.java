@@ -2,10 +2,8 @@ package org.kmeans.utils;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.io.geojson.GeoJsonReader;
 
 import java.io.File;
@@ -21,70 +19,100 @@ public class SiteLoader {
     private static final List<Geometry> europeLandPolygons = new ArrayList<>();
     private static final GeometryFactory geometryFactory = new GeometryFactory();
     private static boolean landPolygonsLoaded = false;
+    private static LandSampler landSampler;
+
+    private static final int READ_BATCH = 4096;
 
     public static List<AccumulationSite> loadSites(String jsonPath, int count) {
-        List<AccumulationSite> allSites = new ArrayList<>();
-    
-        try {
-            File file = new File(jsonPath);
-            if (!file.exists()) {
-                System.out.println("⚠ File not found, generating random land-based sites...");
-                return generateRandomSites(count);
+        return loadDataset(jsonPath, count).toSites();
+    }
+
+    // Streams the file straight into primitive columns. When the file holds more than
+    // count sites a uniform one-pass reservoir sample is kept, so peak memory is bounded
+    // by count rather than by file size. Accepts JSON and binary (SiteBinaryFormat) files.
+    public static SiteDataset loadDataset(String path, int count) {
+        return loadDataset(path, count, random);
+    }
+
+    // Same, with rand driving the sample and any random top-up, so a seeded rand gives
+    // the same sites every time
+    public static SiteDataset loadDataset(String path, int count, Random rand) {
+        File file = new File(path);
+        if (!file.exists()) {
+            System.out.println("⚠ File not found, generating random land-based sites...");
+            return generateSites(count, rand.nextLong());
+        }
+
+        int capacity = Math.min(count, READ_BATCH);
+        double[] lat = new double[capacity];
+        double[] lon = new double[capacity];
+        double[] cap = new double[capacity];
+        double[] batchLat = new double[READ_BATCH];
+        double[] batchLon = new double[READ_BATCH];
+        double[] batchCap = new double[READ_BATCH];
+        int kept = 0;
+        long seen = 0;
+
+        try (SiteStream stream = SiteStream.open(path)) {
+            if (stream instanceof MappedSiteStream mapped && mapped.size <= count) {
+                // Whole binary file wanted: one bulk copy per column, leaving the stream at its end
+                lat = new double[mapped.size];
+                lon = new double[mapped.size];
+                cap = new double[mapped.size];
+                kept = mapped.next(lat, lon, cap, mapped.size);
+                seen = kept;
             }
-    
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(file);
-    
-            for (JsonNode node : root) {
-                double lat, lon, cap;
-    
-                if (node.has("lat") && node.has("lon")) {
-                    lat = node.get("lat").asDouble();
-                    lon = node.get("lon").asDouble();
-                    cap = node.get("disposal_tons_per_year").asDouble();
-                } else if (node.has("latitude") && node.has("longitude")) {
-                    lat = node.get("latitude").asDouble();
-                    lon = node.get("longitude").asDouble();
-                    cap = node.get("capacity").asDouble();
-                } else {
-                    continue; // Skip unrecognized entry
+            int read;
+            while ((read = stream.next(batchLat, batchLon, batchCap, READ_BATCH)) > 0) {
+                for (int j = 0; j < read; j++, seen++) {
+                    int slot;
+                    if (kept < count) {
+                        if (kept == lat.length) {
+                            int grown = (int) Math.min(count, 2L * lat.length);
+                            lat = Arrays.copyOf(lat, grown);
+                            lon = Arrays.copyOf(lon, grown);
+                            cap = Arrays.copyOf(cap, grown);
+                        }
+                        slot = kept++;
+                    } else {
+                        // Algorithm R: the (seen + 1)-th site replaces a random slot with probability count / (seen + 1)
+                        long r = rand.nextLong(seen + 1);
+                        if (r >= count) continue;
+                        slot = (int) r;
+                    }
+                    lat[slot] = batchLat[j];
+                    lon[slot] = batchLon[j];
+                    cap[slot] = batchCap[j];
                 }
-    
-                allSites.add(new AccumulationSite(lat, lon, cap));
-            }
-    
-            if (allSites.isEmpty()) {
-                System.out.println("⚠ No valid entries in file. Falling back to random generation.");
-                return generateRandomSites(count);
-            }
-    
-            // If count is smaller than half of the available dataset → pick random
-            if (count <= allSites.size() / 2) {
-                Collections.shuffle(allSites);
-                return new ArrayList<>(allSites.subList(0, count));
-            }
-    
-            List<AccumulationSite> result = new ArrayList<>(allSites);
-    
-            // If not enough, fill with random
-            if (result.size() < count) {
-                System.out.println("⚠ Only " + result.size() + " loaded. Generating " + (count - result.size()) + " random sites...");
-                result.addAll(generateRandomSites(count - result.size()));
-            } else {
-                // Trim to exactly count entries
-                result = result.subList(0, count);
             }
-    
-            return result;
-    
         } catch (Exception e) {
             System.out.println("⚠ Failed to read file or parse. Falling back to random generation.");
-            return generateRandomSites(count);
+            return generateSites(count, rand.nextLong());
+        }
+
+        if (kept == 0) {
+            System.out.println("⚠ No valid entries in file. Falling back to random generation.");
+            return generateSites(count, rand.nextLong());
+        }
+
+        // If not enough, fill with random
+        if (kept < count) {
+            System.out.println("⚠ Only " + kept + " loaded. Generating " + (count - kept) + " random sites...");
+            SiteDataset extra = generateSites(count - kept, rand.nextLong());
+            lat = Arrays.copyOf(lat, count);
+            lon = Arrays.copyOf(lon, count);
+            cap = Arrays.copyOf(cap, count);
+            System.arraycopy(extra.lat, 0, lat, kept, extra.size);
+            System.arraycopy(extra.lon, 0, lon, kept, extra.size);
+            System.arraycopy(extra.capacity, 0, cap, kept, extra.size);
+        } else if (seen > count) {
+            System.out.println("Sampled " + count + " of " + seen + " sites.");
         }
+
+        return new SiteDataset(lat, lon, cap);
     }
-    
 
-    public static void loadEuropeLandPolygons(String geoJsonPath) throws Exception {
+    public static synchronized void loadEuropeLandPolygons(String geoJsonPath) throws Exception {
         if (landPolygonsLoaded)
             return;
         String content = new String(Files.readAllBytes(new File(geoJsonPath).toPath()));
@@ -107,9 +135,12 @@ public class SiteLoader {
         }
 
         landPolygonsLoaded = true;
+        landSampler = null;
     }
 
-    private static List<AccumulationSite> generateRandomSites(int count) {
+    // Uniform land points in the 35-60°N / 10°W-30°E box, generated in parallel;
+    // the same seed always gives the same sites
+    public static synchronized SiteDataset generateSites(int count, long seed) {
         // Lazy load only if not already loaded
         if (!landPolygonsLoaded) {
             try {
@@ -148,32 +179,10 @@ public class SiteLoader {
                 throw new RuntimeException("Failed to load Europe land polygons", e);
             }
         }
-    
-        List<AccumulationSite> generated = new ArrayList<>();
-        int attempts = 0;
-    
-        while (generated.size() < count) {
-            attempts++;
-    
-            double lat = 35 + random.nextDouble() * 25;
-            double lon = -10 + random.nextDouble() * 40;
-    
-            Point point = geometryFactory.createPoint(new Coordinate(lon, lat));
-    
-            for (Geometry polygon : europeLandPolygons) {
-                if (polygon.contains(point)) {
-                    double cap = 100 + random.nextDouble() * (MAX_CAPACITY - 100);
-                    generated.add(new AccumulationSite(lat, lon, cap));
-                    break;
-                }
-            }
-    
-            if (attempts % 100000 == 0) {
-                System.out.println("Still trying... " + generated.size() + " / " + count);
-            }
+
+        if (landSampler == null) {
+            landSampler = new LandSampler(europeLandPolygons, geometryFactory, 35, 60, -10, 30);
         }
-    
-        System.out.println("Generated " + count + " random land-based sites after " + attempts + " attempts.");
-        return generated;
+        return landSampler.sample(count, 100, MAX_CAPACITY, seed, 0);
     }
 }
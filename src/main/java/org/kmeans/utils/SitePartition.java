@@ -0,0 +1,24 @@
+package org.kmeans.utils;
+
+// Deterministic split of n records into contiguous, near-equal ranges. Every rank computes
+// its own range from (n, part, parts) alone, so no offsets have to be exchanged.
+public class SitePartition {
+
+    // First record of part `part`; part `parts` gives n
+    public static int start(int n, int part, int parts) {
+        return (int) ((long) n * part / parts);
+    }
+
+    public static int end(int n, int part, int parts) {
+        return start(n, part + 1, parts);
+    }
+
+    public static int size(int n, int part, int parts) {
+        return end(n, part, parts) - start(n, part, parts);
+    }
+
+    // Reads only this part's share of `requested` sites from a mapped binary file
+    public static SiteDataset read(MappedSiteStream file, int requested, int part, int parts) {
+        return file.sample(requested, start(requested, part, parts), end(requested, part, parts));
+    }
+}
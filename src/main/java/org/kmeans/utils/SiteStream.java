@@ -0,0 +1,72 @@
+package org.kmeans.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Forward-only source of sites, read in caller-sized batches so memory stays bounded
+public interface SiteStream extends Closeable {
+
+    // Fills up to max entries of each column; returns how many were read, 0 at the end
+    int next(double[] lat, double[] lon, double[] capacity, int max) throws IOException;
+
+    // Starts again from the first site
+    void rewind() throws IOException;
+
+    @Override
+    default void close() throws IOException {}
+
+    static SiteStream of(SiteDataset data) {
+        return new SiteStream() {
+            private int position = 0;
+
+            @Override
+            public int next(double[] lat, double[] lon, double[] capacity, int max) {
+                int n = Math.min(max, data.size - position);
+                System.arraycopy(data.lat, position, lat, 0, n);
+                System.arraycopy(data.lon, position, lon, 0, n);
+                System.arraycopy(data.capacity, position, capacity, 0, n);
+                position += n;
+                return n;
+            }
+
+            @Override
+            public void rewind() {
+                position = 0;
+            }
+        };
+    }
+
+    // The first max sites of source; closing it closes source
+    static SiteStream limit(SiteStream source, long max) {
+        return new SiteStream() {
+            private long position = 0;
+
+            @Override
+            public int next(double[] lat, double[] lon, double[] capacity, int count) throws IOException {
+                int n = source.next(lat, lon, capacity, (int) Math.min(count, max - position));
+                position += n;
+                return n;
+            }
+
+            @Override
+            public void rewind() throws IOException {
+                source.rewind();
+                position = 0;
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    static SiteStream openJson(String jsonPath) throws IOException {
+        return new JsonSiteStream(jsonPath);
+    }
+
+    // Binary site files are mapped, anything else is streamed as JSON
+    static SiteStream open(String path) throws IOException {
+        return SiteBinaryFormat.isBinary(path) ? new MappedSiteStream(path) : new JsonSiteStream(path);
+    }
+}
@@ -0,0 +1,219 @@
+package org.kmeans.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+// In-JVM stand-in for MPJ: every rank is a thread and messages are array copies handed
+// over through per-(source, dest, tag) FIFO mailboxes, so ordering matches MPI's
+// non-overtaking rule. Broadcast and Allreduce use binomial trees (log2 P rounds, like a
+// real MPI), the gathers and scatter go straight to or from rank 0.
+public class ThreadCommunicator implements Communicator {
+
+    // Internal tags for the collectives, outside the range user tags are expected in
+    private static final int TAG_BCAST = -1;
+    private static final int TAG_REDUCE = -2;
+    private static final int TAG_GATHER = -3;
+    private static final int TAG_SCATTER = -4;
+
+    @FunctionalInterface
+    public interface RankTask {
+        void run(Communicator comm) throws Exception;
+    }
+
+    private record Route(int source, int dest, int tag) {}
+
+    private final int rank;
+    private final int size;
+    private final Map<Route, LinkedBlockingQueue<Object>> mailboxes;
+
+    private ThreadCommunicator(int rank, int size, Map<Route, LinkedBlockingQueue<Object>> mailboxes) {
+        this.rank = rank;
+        this.size = size;
+        this.mailboxes = mailboxes;
+    }
+
+    // Runs task once per rank, each on its own thread, and waits for all of them.
+    // If a rank fails the others are interrupted and the first failure is rethrown.
+    public static void run(int ranks, RankTask task) {
+        Map<Route, LinkedBlockingQueue<Object>> mailboxes = new ConcurrentHashMap<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[ranks];
+
+        for (int r = 0; r < ranks; r++) {
+            ThreadCommunicator comm = new ThreadCommunicator(r, ranks, mailboxes);
+            threads[r] = new Thread(() -> {
+                try {
+                    task.run(comm);
+                } catch (Throwable t) {
+                    if (failure.compareAndSet(null, t)) {
+                        for (Thread other : threads) {
+                            if (other != Thread.currentThread()) other.interrupt();
+                        }
+                    }
+                }
+            }, "rank-" + r);
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for rank threads", e);
+            }
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException e) throw e;
+        if (t != null) throw new RuntimeException("Rank thread failed", t);
+    }
+
+    @Override
+    public int rank() {
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void send(double[] buf, int offset, int count, int dest, int tag) {
+        double[] message = new double[count];
+        System.arraycopy(buf, offset, message, 0, count);
+        mailbox(rank, dest, tag).add(message);
+    }
+
+    @Override
+    public void send(int[] buf, int offset, int count, int dest, int tag) {
+        int[] message = new int[count];
+        System.arraycopy(buf, offset, message, 0, count);
+        mailbox(rank, dest, tag).add(message);
+    }
+
+    @Override
+    public void recv(double[] buf, int offset, int count, int source, int tag) {
+        double[] message = (double[]) take(source, tag, count);
+        System.arraycopy(message, 0, buf, offset, message.length);
+    }
+
+    @Override
+    public void recv(int[] buf, int offset, int count, int source, int tag) {
+        int[] message = (int[]) take(source, tag, count);
+        System.arraycopy(message, 0, buf, offset, message.length);
+    }
+
+    // In round m ranks [0, m) hold the data and send it to ranks [m, 2m)
+    @Override
+    public void bcast(double[] buf, int offset, int count) {
+        for (int mask = 1; mask < size; mask <<= 1) {
+            if (rank < mask) {
+                if (rank + mask < size) send(buf, offset, count, rank + mask, TAG_BCAST);
+            } else if (rank < mask << 1) {
+                recv(buf, offset, count, rank - mask, TAG_BCAST);
+            }
+        }
+    }
+
+    @Override
+    public void bcast(int[] buf, int offset, int count) {
+        for (int mask = 1; mask < size; mask <<= 1) {
+            if (rank < mask) {
+                if (rank + mask < size) send(buf, offset, count, rank + mask, TAG_BCAST);
+            } else if (rank < mask << 1) {
+                recv(buf, offset, count, rank - mask, TAG_BCAST);
+            }
+        }
+    }
+
+    // Binomial-tree sum into rank 0, then broadcast, so every rank gets identical bits
+    @Override
+    public void allreduceSum(double[] send, double[] recv, int count) {
+        double[] acc = new double[count];
+        System.arraycopy(send, 0, acc, 0, count);
+        double[] incoming = new double[count];
+        for (int mask = 1; mask < size; mask <<= 1) {
+            if ((rank & mask) != 0) {
+                send(acc, 0, count, rank - mask, TAG_REDUCE);
+                break;
+            }
+            if (rank + mask < size) {
+                recv(incoming, 0, count, rank + mask, TAG_REDUCE);
+                for (int i = 0; i < count; i++) acc[i] += incoming[i];
+            }
+        }
+        if (rank == 0) System.arraycopy(acc, 0, recv, 0, count);
+        bcast(recv, 0, count);
+    }
+
+    @Override
+    public void allgather(int[] send, int[] recv) {
+        gather(send, recv);
+        bcast(recv, 0, size);
+    }
+
+    @Override
+    public void allgatherv(double[] send, double[] recv, int[] counts, int[] displs) {
+        if (rank == 0) {
+            System.arraycopy(send, 0, recv, displs[0], counts[0]);
+            for (int r = 1; r < size; r++) recv(recv, displs[r], counts[r], r, TAG_GATHER);
+        } else {
+            send(send, 0, counts[rank], 0, TAG_GATHER);
+        }
+        // The blocks may not be contiguous, so broadcast each one
+        for (int r = 0; r < size; r++) bcast(recv, displs[r], counts[r]);
+    }
+
+    @Override
+    public void gather(int[] send, int[] recv) {
+        if (rank == 0) {
+            recv[0] = send[0];
+            for (int r = 1; r < size; r++) recv(recv, r, 1, r, TAG_GATHER);
+        } else {
+            send(send, 0, 1, 0, TAG_GATHER);
+        }
+    }
+
+    @Override
+    public void gatherv(int[] send, int[] recv, int[] counts, int[] displs) {
+        if (rank == 0) {
+            System.arraycopy(send, 0, recv, displs[0], send.length);
+            for (int r = 1; r < size; r++) recv(recv, displs[r], counts[r], r, TAG_GATHER);
+        } else {
+            send(send, 0, send.length, 0, TAG_GATHER);
+        }
+    }
+
+    @Override
+    public void scatterv(double[] send, int[] counts, int[] displs, double[] recv) {
+        if (rank == 0) {
+            for (int r = 1; r < size; r++) send(send, displs[r], counts[r], r, TAG_SCATTER);
+            System.arraycopy(send, displs[0], recv, 0, counts[0]);
+        } else {
+            recv(recv, 0, counts[rank], 0, TAG_SCATTER);
+        }
+    }
+
+    private LinkedBlockingQueue<Object> mailbox(int source, int dest, int tag) {
+        return mailboxes.computeIfAbsent(new Route(source, dest, tag), route -> new LinkedBlockingQueue<>());
+    }
+
+    private Object take(int source, int tag, int capacity) {
+        Object message;
+        try {
+            message = mailbox(source, rank, tag).take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Rank " + rank + " interrupted waiting for rank " + source, e);
+        }
+        int length = message instanceof double[] d ? d.length : ((int[]) message).length;
+        if (length > capacity) {
+            throw new IllegalStateException("Rank " + rank + " got " + length + " elements from rank "
+                    + source + " but expected at most " + capacity);
+        }
+        return message;
+    }
+}
@@ -0,0 +1,71 @@
+package org.kmeans.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD half of DistanceKernel. Only loaded once DistanceKernel has confirmed the
+// jdk.incubator.vector module is present; never reference it from anywhere else.
+class VectorDistanceKernel {
+
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    // Lane offsets 0, 1, 2, ... as doubles (exact for any realistic k)
+    private static final DoubleVector IOTA = DoubleVector.zero(SPECIES).addIndex(1);
+
+    static void squaredDistances(double lat, double lon, double[] cLat, double[] cLon, int padded,
+                                 double[] scratch) {
+        DoubleVector x = DoubleVector.broadcast(SPECIES, lat);
+        DoubleVector y = DoubleVector.broadcast(SPECIES, lon);
+        for (int c = 0; c < padded; c += LANES) {
+            DoubleVector dx = x.sub(DoubleVector.fromArray(SPECIES, cLat, c));
+            DoubleVector dy = y.sub(DoubleVector.fromArray(SPECIES, cLon, c));
+            dx.mul(dx).add(dy.mul(dy)).intoArray(scratch, c);
+        }
+    }
+
+    static int nearest(double lat, double lon, double[] cLat, double[] cLon, int padded) {
+        DoubleVector x = DoubleVector.broadcast(SPECIES, lat);
+        DoubleVector y = DoubleVector.broadcast(SPECIES, lon);
+        DoubleVector best = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        DoubleVector bestIndex = DoubleVector.zero(SPECIES);
+        for (int c = 0; c < padded; c += LANES) {
+            DoubleVector dx = x.sub(DoubleVector.fromArray(SPECIES, cLat, c));
+            DoubleVector dy = y.sub(DoubleVector.fromArray(SPECIES, cLon, c));
+            DoubleVector dist = dx.mul(dx).add(dy.mul(dy));
+            // Strict < keeps the earliest center per lane
+            VectorMask<Double> closer = dist.lt(best);
+            best = best.blend(dist, closer);
+            bestIndex = bestIndex.blend(IOTA.add(c), closer);
+        }
+
+        // Lowest index among the lanes holding the minimum keeps the scalar tie-breaking
+        double min = best.reduceLanes(VectorOperators.MIN);
+        VectorMask<Double> atMin = best.eq(min);
+        return (int) bestIndex.reduceLanes(VectorOperators.MIN, atMin);
+    }
+
+    // Largest x * cx + y * cy + z * cz; padding lanes are NaN and never compare greater
+    static int largestDot(double x, double y, double z, double[] cx, double[] cy, double[] cz, int padded) {
+        DoubleVector vx = DoubleVector.broadcast(SPECIES, x);
+        DoubleVector vy = DoubleVector.broadcast(SPECIES, y);
+        DoubleVector vz = DoubleVector.broadcast(SPECIES, z);
+        DoubleVector best = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+        DoubleVector bestIndex = DoubleVector.zero(SPECIES);
+        for (int c = 0; c < padded; c += LANES) {
+            DoubleVector dot = vx.mul(DoubleVector.fromArray(SPECIES, cx, c))
+                    .add(vy.mul(DoubleVector.fromArray(SPECIES, cy, c)))
+                    .add(vz.mul(DoubleVector.fromArray(SPECIES, cz, c)));
+            // Strict > keeps the earliest center per lane
+            VectorMask<Double> closer = dot.compare(VectorOperators.GT, best);
+            best = best.blend(dot, closer);
+            bestIndex = bestIndex.blend(IOTA.add(c), closer);
+        }
+
+        double max = best.reduceLanes(VectorOperators.MAX);
+        VectorMask<Double> atMax = best.eq(max);
+        return (int) bestIndex.reduceLanes(VectorOperators.MIN, atMax);
+    }
+}
@@ -0,0 +1,264 @@
+package org.kmeans.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Incremental re-clustering from the previous run. The last run's sites, centers and
+// per-site clusters are kept under results/; a refresh starts from those centers with every
+// surviving site still in its old cluster, and only added sites are scanned up front.
+// Each iteration a site whose distance to its own center is at most half the distance from
+// that center to the nearest other center cannot be closer to any other center (triangle
+// inequality), so it keeps its cluster after one distance; only the sites near the borders
+// of moved centers pay for the full k-center scan.
+public class WarmStart {
+
+    public static final String CENTROIDS_PATH = "results/final_centroids.json";
+    public static final String SITES_PATH = "results/final_sites.bin";
+    public static final String ASSIGNMENTS_PATH = "results/final_assignments.bin";
+
+    private static final int LEAVES_PER_THREAD = 4;
+    // Same margin as HamerlyAssigner, so rounding never keeps a site that should move
+    private static final double SLACK = 1e-9;
+
+    // What the last run left behind
+    public static class Prior {
+        public final SiteDataset sites;
+        public final double[] centroids;
+        public final int k;
+        public final int[] assignment;
+
+        Prior(SiteDataset sites, double[] centroids, int k, int[] assignment) {
+            this.sites = sites;
+            this.centroids = centroids;
+            this.k = k;
+            this.assignment = assignment;
+        }
+    }
+
+    // Keeps the centers as JSON (without the site lists) plus the sites and their clusters
+    // in binary, for the next refresh
+    public static void save(SiteDataset sites, ClusteringResult result) throws IOException {
+        if (result.assignment == null || result.assignment.length != sites.size) {
+            throw new IllegalArgumentException("Result does not cover the " + sites.size + " sites");
+        }
+        List<ClusterCenter> centers = new ArrayList<>(result.centers.size());
+        for (ClusterCenter center : result.centers) {
+            centers.add(new ClusterCenter(center.latitude, center.longitude));
+        }
+        Files.createDirectories(Path.of(CENTROIDS_PATH).getParent());
+        ResultSaver.saveResult(new ClusteringResult(centers, result.cycles, result.finalShift,
+                result.durationMillis), CENTROIDS_PATH);
+        SiteBinaryFormat.write(sites, SITES_PATH);
+        new AssignmentSidecar(centers.size(), centroidsOf(result), result.assignment).write(ASSIGNMENTS_PATH);
+    }
+
+    // null when no previous run was saved, or its files do not belong together
+    public static Prior load() throws IOException {
+        if (!Files.exists(Path.of(CENTROIDS_PATH)) || !Files.exists(Path.of(SITES_PATH))
+                || !Files.exists(Path.of(ASSIGNMENTS_PATH))) {
+            return null;
+        }
+        ClusteringResult saved = ResultSaver.loadResult(CENTROIDS_PATH);
+        AssignmentSidecar sidecar = AssignmentSidecar.read(ASSIGNMENTS_PATH);
+        SiteDataset sites = new MappedSiteStream(SITES_PATH).toDataset();
+        if (saved == null || saved.centers.size() != sidecar.k || sidecar.assignment.length != sites.size) {
+            System.out.println("⚠️ Saved warm-start files do not match; ignoring them.");
+            return null;
+        }
+        return new Prior(sites, centroidsOf(saved), sidecar.k, sidecar.assignment);
+    }
+
+    // Flat k x 2 centers of any saved result (final_centroids.json, distributed_result.json),
+    // for ClusteringOptions.initialCentroids
+    public static double[] centroidsOf(ClusteringResult result) {
+        double[] centroids = new double[result.centers.size() * 2];
+        for (int c = 0; c < result.centers.size(); c++) {
+            centroids[c * 2] = result.centers.get(c).latitude;
+            centroids[c * 2 + 1] = result.centers.get(c).longitude;
+        }
+        return centroids;
+    }
+
+    // Today's sites: the prior ones minus `removed` plus `added`, prior order first. Removed
+    // sites are matched by coordinates, and ones the prior run never had are ignored.
+    public static SiteDataset applyDelta(Prior prior, SiteDataset added, SiteDataset removed) {
+        boolean[] gone = new boolean[prior.sites.size];
+        SiteMatcher matcher = new SiteMatcher(prior.sites);
+        for (int i = 0; i < removed.size; i++) {
+            int p = matcher.take(removed.lat[i], removed.lon[i]);
+            if (p >= 0) gone[p] = true;
+        }
+
+        int kept = 0;
+        for (boolean g : gone) if (!g) kept++;
+        int n = kept + added.size;
+        double[] lat = new double[n], lon = new double[n], capacity = new double[n];
+        int i = 0;
+        for (int p = 0; p < prior.sites.size; p++) {
+            if (gone[p]) continue;
+            lat[i] = prior.sites.lat[p];
+            lon[i] = prior.sites.lon[p];
+            capacity[i++] = prior.sites.capacity[p];
+        }
+        System.arraycopy(added.lat, 0, lat, kept, added.size);
+        System.arraycopy(added.lon, 0, lon, kept, added.size);
+        System.arraycopy(added.capacity, 0, capacity, kept, added.size);
+        return new SiteDataset(lat, lon, capacity);
+    }
+
+    // Re-clusters today's full site list (e.g. from applyDelta), matched against the prior one
+    public static ClusteringResult refresh(Prior prior, SiteDataset current, ClusteringOptions options) {
+        SiteMatcher matcher = new SiteMatcher(prior.sites);
+        int[] known = new int[current.size];
+        int matched = 0;
+        for (int i = 0; i < current.size; i++) {
+            int p = matcher.take(current.lat[i], current.lon[i]);
+            known[i] = p >= 0 ? prior.assignment[p] : -1;
+            if (p >= 0) matched++;
+        }
+        System.out.println("Warm start: " + matched + " sites kept, " + (prior.sites.size - matched)
+                + " removed, " + (current.size - matched) + " added.");
+        return cluster(current, known, prior.centroids, prior.k, options);
+    }
+
+    // Lloyd iterations from the given centers; known[i] is site i's cluster from the previous
+    // run, or -1 for a site that must be scanned. Weights are honored; geodesic runs go through
+    // KMeansParallel from the same centers, as the half-separation test here is planar.
+    public static ClusteringResult cluster(SiteDataset data, int[] known, double[] initialCentroids, int k,
+                                           ClusteringOptions options) {
+        if (options.distance == DistanceMode.GEODESIC) {
+            ClusteringOptions warm = options.copy();
+            warm.k = k;
+            warm.initialCentroids = initialCentroids;
+            return KMeansParallel.cluster(data, warm);
+        }
+
+        double[] centroids = initialCentroids.clone();
+        int[] assignment = known.clone();
+        ForkJoinPool pool = ClusterPool.get(options.threads);
+
+        int grain = Math.max(1, (int) Math.ceil((double) data.size / (pool.getParallelism() * LEAVES_PER_THREAD)));
+        int leaves = (data.size + grain - 1) / grain;
+        double[][] leafSums = new double[leaves][k * 2];
+        double[][] leafWeights = new double[leaves][k];
+        long[] leafScans = new long[leaves];
+        double[] sums = new double[k * 2];
+        double[] weights = new double[k];
+        double[] halfSeparation = new double[k];
+
+        long startTime = System.nanoTime();
+        int cycles = 0;
+        double shift = 0;
+
+        for (int iter = 0; iter < options.maxIterations; iter++) {
+            cycles++;
+
+            DistanceKernel.Centers centers = DistanceKernel.prepare(centroids, k);
+            halfSeparations(centroids, k, halfSeparation);
+
+            ClusterPool.forEach(pool, leaves, leaf -> {
+                int from = leaf * grain;
+                int to = Math.min(data.size, from + grain);
+                double[] localSums = leafSums[leaf];
+                double[] localWeights = leafWeights[leaf];
+                Arrays.fill(localSums, 0);
+                Arrays.fill(localWeights, 0);
+                double[] scratch = centers.newScratch();
+                long scans = 0;
+                for (int i = from; i < to; i++) {
+                    double x = data.lat[i];
+                    double y = data.lon[i];
+                    int a = assignment[i];
+                    if (a < 0 || distance(x, y, centroids, a) + SLACK > halfSeparation[a]) {
+                        a = DistanceKernel.nearest(x, y, centers, scratch);
+                        scans++;
+                    }
+                    double w = data.weight(i);
+                    assignment[i] = a;
+                    localSums[a * 2] += w * x;
+                    localSums[a * 2 + 1] += w * y;
+                    localWeights[a] += w;
+                }
+                leafScans[leaf] = scans;
+            });
+
+            // Reduce per-leaf accumulators in leaf order
+            Arrays.fill(sums, 0);
+            Arrays.fill(weights, 0);
+            long scans = 0;
+            for (int leaf = 0; leaf < leaves; leaf++) {
+                for (int i = 0; i < k * 2; i++) sums[i] += leafSums[leaf][i];
+                for (int i = 0; i < k; i++) weights[i] += leafWeights[leaf][i];
+                scans += leafScans[leaf];
+            }
+
+            shift = ClusterKernels.updateCentroids(centroids, sums, weights, k);
+            System.out.println("Warm start iteration " + cycles + ": " + scans + " of " + data.size
+                    + " sites scanned, largest center shift " + shift);
+
+            if (shift <= options.tolerance) break; // early convergence
+        }
+
+        long endTime = System.nanoTime();
+        long durationMillis = (endTime - startTime) / 1_000_000;
+
+        return ClusterKernels.buildResult(data, centroids, k, assignment, cycles, shift, durationMillis);
+    }
+
+    // Half the distance from each center to its nearest other center
+    private static void halfSeparations(double[] centroids, int k, double[] half) {
+        for (int c = 0; c < k; c++) {
+            double min = Double.MAX_VALUE;
+            for (int o = 0; o < k; o++) {
+                if (o == c) continue;
+                double dx = centroids[c * 2] - centroids[o * 2];
+                double dy = centroids[c * 2 + 1] - centroids[o * 2 + 1];
+                min = Math.min(min, dx * dx + dy * dy);
+            }
+            half[c] = 0.5 * Math.sqrt(min);
+        }
+    }
+
+    private static double distance(double lat, double lon, double[] centroids, int c) {
+        double dx = lat - centroids[c * 2];
+        double dy = lon - centroids[c * 2 + 1];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Finds prior sites by exact coordinates; each prior site is handed out once, so
+    // duplicates at one spot are matched one for one
+    private static class SiteMatcher {
+        private record Key(double lat, double lon) {}
+
+        private final Map<Key, Integer> head = new HashMap<>();
+        private final int[] next;
+
+        SiteMatcher(SiteDataset sites) {
+            next = new int[sites.size];
+            for (int i = sites.size - 1; i >= 0; i--) {
+                Integer previous = head.put(new Key(sites.lat[i], sites.lon[i]), i);
+                next[i] = previous != null ? previous : -1;
+            }
+        }
+
+        // Index of an unmatched prior site at (lat, lon), or -1
+        int take(double lat, double lon) {
+            Key key = new Key(lat, lon);
+            Integer i = head.get(key);
+            if (i == null) return -1;
+            if (next[i] >= 0) {
+                head.put(key, next[i]);
+            } else {
+                head.remove(key);
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.kmeans.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static SiteDataset sites(int n) {
+        Random rand = new Random(7);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 40 + rand.nextDouble() * 10;
+            lon[i] = rand.nextDouble() * 20;
+        }
+        return new SiteDataset(lat, lon, new double[n]);
+    }
+
+    // Counts how often the engine really runs
+    private static BiFunction<SiteDataset, ClusteringOptions, ClusteringResult> counting(AtomicInteger runs) {
+        return (data, options) -> {
+            runs.incrementAndGet();
+            return KMeans.cluster(data, options);
+        };
+    }
+
+    @Test
+    void secondSeededRunIsServedFromTheCache() {
+        ResultCache cache = new ResultCache(directory, 1 << 20, 8);
+        SiteDataset data = sites(2000);
+        ClusteringOptions options = new ClusteringOptions(5, 50);
+        options.seed = 1L;
+        AtomicInteger runs = new AtomicInteger();
+
+        ClusteringResult first = cache.computeIfAbsent("KMeans", data, options, counting(runs));
+        ClusteringResult second = cache.computeIfAbsent("KMeans", data, options.copy(), counting(runs));
+
+        assertEquals(1, runs.get());
+        assertNotSame(first, second);
+        assertArrayEquals(first.assignment, second.assignment);
+        assertArrayEquals(WarmStart.centroidsOf(first), WarmStart.centroidsOf(second));
+        assertEquals(first.cycles, second.cycles);
+    }
+
+    @Test
+    void hitsAreRebuiltSoCallersCannotCorruptThem() {
+        ResultCache cache = new ResultCache(directory, 1 << 20, 8);
+        SiteDataset data = sites(500);
+        ClusteringOptions options = new ClusteringOptions(3, 50);
+        options.seed = 2L;
+        AtomicInteger runs = new AtomicInteger();
+
+        ClusteringResult first = cache.computeIfAbsent("KMeans", data, options, counting(runs));
+        int expected = first.assignment[0];
+        first.assignment[0] = 99;
+        first.centers.get(0).assignedSites.clear();
+
+        ClusteringResult second = cache.computeIfAbsent("KMeans", data, options, counting(runs));
+        assertEquals(expected, second.assignment[0]);
+        assertEquals(500, second.centers.stream().mapToInt(c -> c.assignedSites.size()).sum());
+    }
+
+    @Test
+    void newProcessReadsTheEntryBackFromDisk() {
+        SiteDataset data = sites(500);
+        ClusteringOptions options = new ClusteringOptions(3, 50);
+        options.seed = 3L;
+        AtomicInteger runs = new AtomicInteger();
+
+        ClusteringResult first = new ResultCache(directory, 1 << 20, 8)
+                .computeIfAbsent("KMeans", data, options, counting(runs));
+        ClusteringResult second = new ResultCache(directory, 1 << 20, 8)
+                .computeIfAbsent("KMeans", data, options, counting(runs));
+
+        assertEquals(1, runs.get());
+        assertArrayEquals(first.assignment, second.assignment);
+    }
+
+    @Test
+    void unseededRunsAlwaysRun() {
+        ResultCache cache = new ResultCache(directory, 1 << 20, 8);
+        SiteDataset data = sites(500);
+        ClusteringOptions options = new ClusteringOptions(3, 50);
+        AtomicInteger runs = new AtomicInteger();
+
+        cache.computeIfAbsent("KMeans", data, options, counting(runs));
+        cache.computeIfAbsent("KMeans", data, options, counting(runs));
+
+        assertEquals(2, runs.get());
+    }
+}